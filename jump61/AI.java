@@ -2,7 +2,11 @@
 package jump61;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /** An automated Player.
  *  @author Randy Shi
@@ -16,31 +20,13 @@ class AI extends Player {
      */
     AI(Game game, Side color) {
         super(game, color);
+        _evaluator = game.getEvaluator();
     }
 
     @Override
     void makeMove() {
         Board board = getGame()._board;
-        ArrayList<Integer> allMoves = new ArrayList<Integer>();
-        ArrayList<Integer> corners = new ArrayList<Integer>();
-        ArrayList<Integer> sides = new ArrayList<Integer>();
-        ArrayList<Integer> inners = new ArrayList<Integer>();
-        addDesignations(allMoves, 0);
-        addDesignations(corners, 2);
-        addDesignations(sides, 3);
-        addDesignations(inners, 4);
-        int bestMove = -1;
-        if (bestSpill(board, allMoves) != -1) {
-            bestMove = bestSpill(board, allMoves);
-        } else if (bestMove(board, corners, 2) != -1) {
-            bestMove = bestMove(board, corners, 2);
-        } else if (bestMove(board, sides, 3) != -1) {
-            bestMove = bestMove(board, sides, 3);
-        } else if (bestMove(board, inners, 4) != -1) {
-            bestMove = bestMove(board, inners, 4);
-        } else {
-            bestMove = bestMinimaxVal(board, allMoves);
-        }
+        int bestMove = computeMove(board);
         try {
             getGame().makeMove(board.row(bestMove), board.col(bestMove));
         } catch (AssertionError e) {
@@ -50,6 +36,9 @@ class AI extends Player {
             }
             getGame().makeMove(board.row(bestMove), board.col(bestMove));
         }
+        if (getGame().showInfo()) {
+            getGame().message("%s%n", _stats);
+        }
         if (getSide() == Side.RED) {
             getGame().message("Red moves %d %d.\n", board.row(bestMove),
                     board.col(bestMove));
@@ -59,109 +48,189 @@ class AI extends Player {
         }
     }
 
-    /** Adds designated squares to MOVES. N tells this method which
-     *  moves are being designated:
-     *  N == 0 -> MOVES is all possible moves;
-     *  N == 2 -> MOVES is all corner squares;
-     *  N == 3 -> MOVES is all side squares;
-     *  N == 4 -> MOVES is all inner squares. */
-    private void addDesignations(ArrayList<Integer> moves, int n) {
-        Board b = getGame()._board;
-        if (n != 0) {
-            for (int i = 0; i < Math.pow(b.size(), 2); i++) {
-                if (b.isLegal(getSide(), i) && b.neighbors(i) == n) {
-                    moves.add(i);
-                }
+    /** Returns chooseMove(BOARD), computed on my game's compute pool if
+     *  it has one.  The calling thread waits for the result, so BOARD
+     *  does not change meanwhile. */
+    private int computeMove(Board board) {
+        ExecutorService pool = getGame().getComputePool();
+        if (pool == null) {
+            return chooseMove(board);
+        }
+        Future<Integer> move = pool.submit(() -> chooseMove(board));
+        try {
+            return move.get();
+        } catch (InterruptedException excp) {
+            move.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new GameException("interrupted while choosing a move");
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
             }
-        } else {
-            for (int i = 0; i < Math.pow(b.size(), 2); i++) {
-                if (b.isLegal(getSide(), i)) {
-                    moves.add(i);
-                }
+            throw new Error(cause);
+        }
+    }
+
+    /** Returns my choice of move on BOARD, on which it is my move: a
+     *  move that surely wins at once if there is one, else a winning move
+     *  found by my solver, if BOARD has enough critical squares to be
+     *  worth trying to solve, else, from among
+     *  the moves that do not let the opponent surely win at once (if
+     *  any), the best spill onto the opponent if there is one, else the
+     *  quiet move my evaluator prefers most that does not leave the
+     *  square open to capture, else the best move found by searching.
+     *  If my game has a clock, the solver's budget is cut to fit the
+     *  time the clock allows, and I choose from those moves instead by
+     *  searching as deeply as it allows. */
+    int chooseMove(Board board) {
+        _stats.start();
+        long start = System.nanoTime();
+        TimeManager clock = getGame().getClock();
+        long soft = -1, hard = -1;
+        int solverNodes = _solverNodes;
+        if (clock != null) {
+            soft = clock.softLimit(board, getSide());
+            hard = clock.hardLimit(board, getSide());
+            solverNodes = (int) Math.min(solverNodes,
+                                         soft * SOLVER_NODES_PER_MILLI);
+        }
+        int bestMove = board.instantWin(getSide());
+        if (bestMove < 0 && solverNodes > 0
+            && board.numCritical() * 100
+               >= Defaults.SOLVER_CRITICAL * board.size() * board.size()
+            && _solver.solve(board, solverNodes) == Solver.PROVEN) {
+            bestMove = _solver.move();
+        }
+        if (bestMove >= 0) {
+            _stats.stop();
+            return bestMove;
+        }
+        ArrayList<Integer> allMoves = new ArrayList<Integer>();
+        addDesignations(board, allMoves);
+        removeLosingMoves(board, allMoves);
+        if (clock != null) {
+            long used = (System.nanoTime() - start) / NANOS_PER_MILLI;
+            bestMove = deepen(board, allMoves, Engine.MAX_DEPTH,
+                              Math.max(0, soft - used),
+                              Math.max(0, hard - used));
+            _stats.setDepth(_searchDepth);
+            _stats.stop();
+            return bestMove;
+        }
+        bestMove = bestSpill(board, allMoves);
+        if (bestMove == -1) {
+            ArrayList<Integer> quiet = new ArrayList<Integer>(allMoves);
+            quiet.sort((m0, m1) ->
+                       _evaluator.preference(board, getSide(), m1)
+                       - _evaluator.preference(board, getSide(), m0));
+            bestMove = bestMove(board, quiet);
+        }
+        if (bestMove == -1) {
+            bestMove = bestMinimaxVal(board, allMoves);
+        }
+        _stats.stop();
+        return bestMove;
+    }
+
+    /** Adds all my legal moves on B to MOVES. */
+    private void addDesignations(Board b, ArrayList<Integer> moves) {
+        for (int i = 0; i < b.size() * b.size(); i++) {
+            if (b.isLegal(getSide(), i)) {
+                moves.add(i);
+            }
+        }
+    }
+
+    /** Removes from MOVES, my legal moves on B, those after which the
+     *  opponent surely wins at once, unless that would remove them
+     *  all. */
+    private void removeLosingMoves(Board b, ArrayList<Integer> moves) {
+        ArrayList<Integer> safe = new ArrayList<Integer>();
+        for (int move : moves) {
+            Board next = copy(b);
+            next.addSpot(getSide(), move);
+            if (next.getWinner() != null
+                || next.instantWin(getSide().opposite()) == -1) {
+                safe.add(move);
             }
         }
+        if (!safe.isEmpty()) {
+            moves.clear();
+            moves.addAll(safe);
+        }
     }
 
-    /** Adds a (square at {R, C})'s neighbors that are occupied by
+    /** Adds the neighbors of square #N of B that are occupied by
      *  the opponent of P to NEIGHBORS. */
-    private void addOppNeighbors(List<Integer> neighbors,
-            int r, int c, Side p) {
-        Board b = getGame()._board;
+    private void addOppNeighbors(List<Integer> neighbors, Board b,
+            int n, Side p) {
+        int r = b.row(n), c = b.col(n);
         int prevRow = r - 1, nextRow = r + 1,
                 prevCol = c - 1, nextCol = c + 1;
         if (prevRow >= 1) {
-            if (b._board.get(b.sqNum(prevRow, c)).getSide()
-                    == p.opposite()) {
+            if (b.get(b.sqNum(prevRow, c)).getSide() == p.opposite()) {
                 neighbors.add(b.sqNum(prevRow, c));
             }
         }
         if (prevCol >= 1) {
-            if (b._board.get(b.sqNum(r, prevCol)).getSide()
-                    == p.opposite()) {
+            if (b.get(b.sqNum(r, prevCol)).getSide() == p.opposite()) {
                 neighbors.add(b.sqNum(r, prevCol));
             }
         }
         if (nextRow <= b.size()) {
-            if (b._board.get(b.sqNum(nextRow, c)).getSide()
-                    == p.opposite()) {
+            if (b.get(b.sqNum(nextRow, c)).getSide() == p.opposite()) {
                 neighbors.add(b.sqNum(nextRow, c));
             }
         }
         if (nextCol <= b.size()) {
-            if (b._board.get(b.sqNum(r, nextCol)).getSide()
-                    == p.opposite()) {
+            if (b.get(b.sqNum(r, nextCol)).getSide() == p.opposite()) {
                 neighbors.add(b.sqNum(r, nextCol));
             }
         }
     }
 
+    /** Returns true iff a move by P to square #MOVE of B is full and
+     *  so spills onto a neighbor of the opponent's that is also full. */
+    private boolean isSpill(Board b, Side p, int move) {
+        if (b.get(move).getSpots() != b.neighbors(move)) {
+            return false;
+        }
+        ArrayList<Integer> neighborKeys = new ArrayList<Integer>();
+        addOppNeighbors(neighborKeys, b, move, p);
+        for (int key : neighborKeys) {
+            if (b.get(key).getSpots() == b.neighbors(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** If there are squares on B in MOVES that the AI can spill that
      *  give an advantage, then this method finds the spill with the
      *  highest heuristic value and returns that move. */
     int bestSpill(Board b, ArrayList<Integer> moves) {
         ArrayList<Integer> bestSquares = new ArrayList<Integer>();
         for (int move : moves) {
-            ArrayList<Integer> neighborKeys = new ArrayList<Integer>();
-            addOppNeighbors(neighborKeys,
-                    b.row(move), b.col(move), getSide());
-            for (int key: neighborKeys) {
-                Square neighbor = b.get(key);
-                if (neighbor.getSpots() == b.neighbors(key)
-                        && b.get(move).getSpots() == b.neighbors(move)) {
-                    bestSquares.add(move);
-                }
+            if (isSpill(b, getSide(), move)) {
+                bestSquares.add(move);
             }
         }
         if (bestSquares.isEmpty()) {
             return -1;
         }
-        int bestEval = Integer.MIN_VALUE;
-        int bestMove = -1;
-        for (int square : bestSquares) {
-            Board next = new MutableBoard(b);
-            next.addSpot(getSide(), square);
-            int minimax = bestMinimaxVal(next, bestSquares);
-            if (minimax == Integer.MAX_VALUE) {
-                return square;
-            }
-            if (minimax > bestEval) {
-                bestEval = minimax;
-                bestMove = square;
-            }
-        }
-        return bestMove;
+        return bestMinimaxVal(b, bestSquares);
     }
 
-    /** Returns the best move to make on BOARD from DESIGNATIONS.
-     *  N tells this method which moves are being designated:
-     *  N == 2 -> DESIGNATIONS is all corner squares;
-     *  N == 3 -> DESIGNATIONS is all side squares;
-     *  N == 4 -> DESIGNATIONS is all inner squares. */
-    int bestMove(Board board, ArrayList<Integer> designations, int n) {
+    /** Returns the first move on BOARD from DESIGNATIONS to a square that
+     *  is not full and has no fuller neighbor of the opponent's, or -1 if
+     *  there is none. */
+    int bestMove(Board board, ArrayList<Integer> designations) {
         for (int move : designations) {
             ArrayList<Integer> neighborKeys = new ArrayList<Integer>();
-            addOppNeighbors(neighborKeys,
-                    board.row(move), board.col(move), getSide());
+            addOppNeighbors(neighborKeys, board, move, getSide());
             boolean okayToMove = true;
             for (int key: neighborKeys) {
                 Square neighbor = board.get(key);
@@ -171,117 +240,601 @@ class AI extends Player {
                     okayToMove = false;
                 }
             }
-            if (board.get(move).getSpots() < n && okayToMove) {
+            if (board.get(move).getSpots() < board.neighbors(move)
+                && okayToMove) {
                 return move;
             }
         }
         return -1;
     }
 
-    /** Returns the best minimax value from ALLMOVES for B. */
+    /** Returns the move from ALLMOVES with the best minimax value for
+     *  me on B, searching Defaults.SEARCH_DEPTH plies. */
     private int bestMinimaxVal(Board b, ArrayList<Integer> allMoves) {
-        int max = Integer.MIN_VALUE;
-        int maxMove = Integer.MIN_VALUE;
-        for (int move : allMoves) {
+        return bestMinimaxVal(b, allMoves, Defaults.SEARCH_DEPTH, -1);
+    }
+
+    /** Returns the move from ALLMOVES with the best minimax value for
+     *  me on B, searching DEPTH plies, and trying FIRST (if it is one of
+     *  ALLMOVES) before the others.  Leaves the value of the move in
+     *  _rootValue.  If the search is aborted, the result is
+     *  meaningless. */
+    private int bestMinimaxVal(Board b, ArrayList<Integer> allMoves,
+                               int depth, int first) {
+        _stats.setDepth(depth);
+        _quiescenceNodes = 0;
+        int[] moves = new int[allMoves.size()];
+        for (int i = 0; i < moves.length; i += 1) {
+            moves[i] = allMoves.get(i);
+        }
+        moves = removeSymmetricMoves(b, moves);
+        orderMoves(getSide(), b, moves, moves.length, 0);
+        for (int i = 1; i < moves.length; i += 1) {
+            if (moves[i] == first) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = first;
+                break;
+            }
+        }
+        int alpha = -WIN_VALUE;
+        int maxMove = -1;
+        for (int move : moves) {
             if (b.isLegal(getSide(), move)) {
-                Board next = new MutableBoard(b);
+                Board next = copy(b);
                 next.addSpot(getSide(), move);
-                int currVal = minimax(getSide(), next, 1, Integer.MIN_VALUE);
-                if (max < currVal) {
+                int currVal = -minimax(getSide().opposite(), next,
+                                       depth - 1, -WIN_VALUE, -alpha, 1);
+                if (_aborted) {
+                    break;
+                }
+                if (maxMove == -1 || currVal > alpha) {
                     maxMove = move;
-                    max = currVal;
+                    alpha = currVal;
                 }
             }
         }
+        _rootValue = alpha;
         return maxMove;
     }
 
-    /** Returns the best move possible for P given B. Recurses
-     *  to a depth of D and uses CUTOFF to perform pruning. */
-    private int minimax(Side p, Board b, int d, int cutoff) {
-        if (b.numOfSide(p) == Math.pow(b.size(), 2)) {
-            return Integer.MAX_VALUE;
+    /** Returns my best move on B, on which it is my move, found by
+     *  searching to successively greater depths, up to MAXDEPTH plies,
+     *  until a search finds a win or loss, or the time since the call
+     *  exceeds MILLIS milliseconds (if MILLIS >= 0), or stop() is
+     *  called.  The search to depth 1 always completes.  Returns -1 if I
+     *  have no moves.  Afterwards, searchDepth() and rootValue() give
+     *  the depth and value of the deepest completed search. */
+    int search(Board b, int maxDepth, long millis) {
+        return search(b, maxDepth, millis, millis);
+    }
+
+    /** Returns my best move on B, as for search(B, MAXDEPTH, HARDMILLIS),
+     *  except that no deeper search is begun that is expected to end
+     *  more than SOFTMILLIS milliseconds after the call, a limit that is
+     *  stretched while the best move is unstable (see
+     *  TimeManager.extend). */
+    int search(Board b, int maxDepth, long softMillis, long hardMillis) {
+        _stats.start();
+        ArrayList<Integer> moves = new ArrayList<Integer>();
+        addDesignations(b, moves);
+        int best = deepen(b, moves, maxDepth, softMillis, hardMillis);
+        _stats.setDepth(_searchDepth);
+        _stats.stop();
+        return best;
+    }
+
+    /** Returns the best of MOVES, some of my legal moves on B, found by
+     *  searching to successively greater depths, with limits MAXDEPTH,
+     *  SOFTMILLIS, and HARDMILLIS as for search, which see.  Returns -1
+     *  if MOVES is empty. */
+    private int deepen(Board b, ArrayList<Integer> moves, int maxDepth,
+                       long softMillis, long hardMillis) {
+        long start = System.nanoTime();
+        _timed = hardMillis >= 0;
+        _deadline = start + hardMillis * NANOS_PER_MILLI;
+        int best = -1;
+        int value = 0;
+        int instability = 0;
+        long iterationStart = start;
+        _searchDepth = 0;
+        for (int d = 1; d <= maxDepth && !moves.isEmpty(); d += 1) {
+            _abortable = d > 1;
+            int move = bestMinimaxVal(b, moves, d, best);
+            if (_aborted) {
+                break;
+            }
+            instability = best != -1 && move != best ? instability + 1
+                : instability / 2;
+            best = move;
+            value = _rootValue;
+            _searchDepth = d;
+            if (Math.abs(value) > WIN_VALUE - MAX_PLY) {
+                break;
+            }
+            long now = System.nanoTime();
+            long elapsed = (now - start) / NANOS_PER_MILLI;
+            long last = (now - iterationStart) / NANOS_PER_MILLI;
+            iterationStart = now;
+            if (softMillis >= 0
+                && elapsed + NEXT_ITERATION_FACTOR * last
+                   > TimeManager.extend(softMillis, hardMillis, instability)) {
+                break;
+            }
+        }
+        _abortable = false;
+        _aborted = false;
+        _rootValue = value;
+        return best;
+    }
+
+    /** Search B, on which it is my opponent's move, to successively
+     *  greater depths, up to MAXDEPTH plies, until stop() is called or
+     *  the game's outcome is found.  This fills my transposition table
+     *  with the values and best moves of the positions after each of my
+     *  opponent's replies, which my next search, after the reply is
+     *  made, will find there.  Intended to be run in the background
+     *  while my opponent is thinking. */
+    void ponder(Board b, int maxDepth) {
+        _stats.start();
+        _timed = false;
+        _abortable = true;
+        for (int d = 1; d <= maxDepth; d += 1) {
+            _stats.setDepth(d);
+            _quiescenceNodes = 0;
+            int value = minimax(b.whoseMove(), b, d, -WIN_VALUE, WIN_VALUE,
+                                0);
+            if (_aborted || Math.abs(value) > WIN_VALUE - MAX_PLY) {
+                break;
+            }
+        }
+        _abortable = false;
+        _aborted = false;
+        _stats.stop();
+    }
+
+    /** Ask the current or next call of search to stop as soon as it has
+     *  completed a search to depth 1, or of ponder to stop at once.  May
+     *  be called from any thread. */
+    void stop() {
+        _stopRequested = true;
+    }
+
+    /** Cancel any stop() not yet acted on. */
+    void clearStop() {
+        _stopRequested = false;
+    }
+
+    /** Returns the depth of the deepest search completed by the last call
+     *  of search. */
+    int searchDepth() {
+        return _searchDepth;
+    }
+
+    /** Returns the value, for me, of the move returned by the last call
+     *  of search. */
+    int rootValue() {
+        return _rootValue;
+    }
+
+    /** Returns true iff the current search must be abandoned, because
+     *  it may be and it is out of time or has been asked to stop.  Once
+     *  this returns true, it does so until the search ends. */
+    private boolean checkAbort() {
+        if (_abortable && !_aborted) {
+            _aborted = _stopRequested
+                || (_timed && (++_checks & CLOCK_MASK) == 0
+                    && System.nanoTime() - _deadline >= 0);
+            if (_aborted) {
+                _stopRequested = false;
+            }
+        }
+        return _aborted;
+    }
+
+    /** Returns MOVES, a set of legal moves on B, less any move that some
+     *  symmetry of B maps onto an earlier move of MOVES.  Such moves lead
+     *  to symmetric positions and so have the same value. */
+    private int[] removeSymmetricMoves(Board b, int[] moves) {
+        int[][] table = Symmetry.table(b.size());
+        int numMoves = moves.length;
+        for (int t = 1; t < Symmetry.COUNT; t += 1) {
+            if (!Symmetry.isSymmetry(b, t)) {
+                continue;
+            }
+            int kept = 0;
+            for (int i = 0; i < numMoves; i += 1) {
+                int image = table[t][moves[i]];
+                boolean duplicate = false;
+                for (int j = 0; j < kept; j += 1) {
+                    duplicate |= moves[j] == image;
+                }
+                if (!duplicate) {
+                    moves[kept] = moves[i];
+                    kept += 1;
+                }
+            }
+            numMoves = kept;
+        }
+        return Arrays.copyOf(moves, numMoves);
+    }
+
+    /** Returns the minimax value of B for P, the player to move,
+     *  searching to a depth of D plies.  Values at or below ALPHA or at
+     *  or above BETA need only be bounds.  PLY is the distance of B from
+     *  the root of the search. */
+    private int minimax(Side p, Board b, int d, int alpha, int beta,
+                        int ply) {
+        _stats.addNode(ply);
+        if (checkAbort()) {
+            return 0;
         }
-        if (b.numOfSide(p.opposite()) == Math.pow(b.size(), 2)) {
-            return Integer.MIN_VALUE;
+        Side winner = b.getWinner();
+        if (winner != null) {
+            return winner == p ? WIN_VALUE - ply : -WIN_VALUE + ply;
         }
         if (d == 0) {
-            return staticEval(p, b);
+            return quiesce(p, b, alpha, beta, ply, _quiescenceDepth);
         }
-        int bestSoFar = Integer.MIN_VALUE;
-        for (int m = 0; m < b.size() * b.size(); m++) {
+        long key = b.canonicalKey();
+        int entry = _table.find(key);
+        if (entry >= 0 && _table.depth(entry) >= d) {
+            int value = fromTable(_table.value(entry), ply);
+            switch (_table.bound(entry)) {
+            case TranspositionTable.EXACT:
+                return value;
+            case TranspositionTable.LOWER:
+                alpha = Math.max(alpha, value);
+                break;
+            default:
+                beta = Math.min(beta, value);
+                break;
+            }
+            if (alpha >= beta) {
+                return value;
+            }
+        }
+        if (b.instantWin(p) >= 0) {
+            return WIN_VALUE - ply - 1;
+        }
+        int[] moves = new int[b.size() * b.size()];
+        int numMoves = 0;
+        for (int m = 0; m < moves.length; m++) {
             if (b.isLegal(p, m)) {
-                Board next = new MutableBoard(b);
-                next.addSpot(p, m);
-                int response = minimax(p.opposite(), next, d - 1, -bestSoFar);
-                if (cutoff < response) {
-                    cutoff = response;
-                    bestSoFar = m;
-                }
+                moves[numMoves] = m;
+                numMoves += 1;
             }
         }
+        orderMoves(p, b, moves, numMoves, ply);
+        int alpha0 = alpha;
+        int bestSoFar = -WIN_VALUE;
+        int bestMove = -1;
+        for (int i = 0; i < numMoves; i += 1) {
+            Board next = copy(b);
+            next.addSpot(p, moves[i]);
+            int response = -minimax(p.opposite(), next, d - 1,
+                                    -beta, -alpha, ply + 1);
+            if (_aborted) {
+                return 0;
+            }
+            if (response > bestSoFar) {
+                bestSoFar = response;
+                bestMove = moves[i];
+            }
+            alpha = Math.max(alpha, bestSoFar);
+            if (alpha >= beta) {
+                recordCutoff(p, moves[i], d, ply, i == 0);
+                break;
+            }
+        }
+        int bound = bestSoFar <= alpha0 ? TranspositionTable.UPPER
+            : bestSoFar >= beta ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+        if (bestMove >= 0) {
+            bestMove = Symmetry.table(b.size())
+                [b.canonicalTransform()][bestMove];
+        }
+        _table.store(key, bestMove, d, toTable(bestSoFar, ply), bound);
         return bestSoFar;
     }
 
-    /** Returns heuristic value of board B for player P.
-     *  Higher is better for P. */
-    private int staticEval(Side p, Board b) {
-        if (b.numOfSide(p) == b.size() * b.size()) {
-            return Integer.MAX_VALUE;
+    /** Returns the value of B for P, the player to move, found by
+     *  searching only moves that overflow one of P's squares, to a depth
+     *  of at most Q plies, with window ALPHA..BETA at distance PLY from
+     *  the root.  P may always decline to spill, so the static value of
+     *  B is a lower bound.  Once the quiescence node budget of the
+     *  current search to a fixed depth is spent, returns the static
+     *  value. */
+    private int quiesce(Side p, Board b, int alpha, int beta, int ply,
+                        int q) {
+        if (checkAbort()) {
+            return 0;
         }
-        if (b.numOfSide(p.opposite())
-            == b.size() * b.size()) {
-            return Integer.MIN_VALUE;
+        if (q < _quiescenceDepth) {
+            _stats.addQuiescenceNode(ply);
+            _quiescenceNodes += 1;
+            Side winner = b.getWinner();
+            if (winner != null) {
+                return winner == p ? WIN_VALUE - ply : -WIN_VALUE + ply;
+            }
+        }
+        int standPat = staticEval(p, b);
+        if (q == 0 || standPat >= beta
+            || _quiescenceNodes >= _quiescenceBudget) {
+            return standPat;
+        }
+        int[] moves = new int[b.size() * b.size()];
+        int numMoves = 0;
+        for (int m = 0; m < moves.length; m += 1) {
+            if (b.get(m).getSide() == p
+                && b.get(m).getSpots() == b.neighbors(m)) {
+                moves[numMoves] = m;
+                numMoves += 1;
+            }
+        }
+        orderMoves(p, b, moves, numMoves, ply);
+        int bestSoFar = standPat;
+        alpha = Math.max(alpha, standPat);
+        for (int i = 0; i < numMoves; i += 1) {
+            if (_quiescenceNodes >= _quiescenceBudget) {
+                break;
+            }
+            Board next = copy(b);
+            next.addSpot(p, moves[i]);
+            int response = -quiesce(p.opposite(), next, -beta, -alpha,
+                                    ply + 1, q - 1);
+            bestSoFar = Math.max(bestSoFar, response);
+            alpha = Math.max(alpha, bestSoFar);
+            if (alpha >= beta) {
+                break;
+            }
         }
-        return evaluate(p, b) - evaluate(p.opposite(), b);
+        return bestSoFar;
     }
 
-    /** Returns the heuristic of board B for player P. */
-    private int evaluate(Side p, Board b) {
-        ArrayList<Integer> moves = new ArrayList<Integer>();
-        for (int i = 0; i < Math.pow(b.size(), 2); i++) {
-            if (b.isLegal(p, i)) {
-                moves.add(i);
+    /** Sort the first NUMMOVES entries of MOVES, which are legal moves
+     *  for P on B at distance PLY from the root, so that those most
+     *  likely to cause a cutoff come first: the transposition-table
+     *  move, then spills onto the opponent, then killer moves at PLY,
+     *  then moves in order of their history scores.  Ties keep their
+     *  original order.  Does nothing if move ordering is off. */
+    private void orderMoves(Side p, Board b, int[] moves, int numMoves,
+                            int ply) {
+        if (!_ordering) {
+            return;
+        }
+        int ttMove = tableMove(b);
+        int[] scores = new int[numMoves];
+        for (int i = 0; i < numMoves; i += 1) {
+            int m = moves[i];
+            if (m == ttMove) {
+                scores[i] = TABLE_MOVE_SCORE;
+            } else if (isSpill(b, p, m)) {
+                scores[i] = SPILL_SCORE;
+            } else if (ply < MAX_PLY && m == _killers[ply][0]) {
+                scores[i] = KILLER_SCORE;
+            } else if (ply < MAX_PLY && m == _killers[ply][1]) {
+                scores[i] = KILLER_SCORE - 1;
+            } else {
+                scores[i] = _history[p.ordinal()][m];
             }
         }
-        int max = 0;
-        int oppMax = 0;
-        for (int move : moves) {
-            if (b.isLegal(getSide(), move)) {
-                Board next = new MutableBoard(b);
-                next.addSpot(p, move);
-                ArrayList<Integer> oppMoves = new ArrayList<Integer>();
-                for (int i = 0; i < Math.pow(next.size(), 2); i++) {
-                    if (next.isLegal(p.opposite(), i)) {
-                        oppMoves.add(i);
-                    }
-                }
-                for (int oppMove : oppMoves) {
-                    if (next.isLegal(p.opposite(), oppMove)) {
-                        Board nextNext = new MutableBoard(next);
-                        nextNext.addSpot(p.opposite(), oppMove);
-                        int numNewOppSides = helperVal(p.opposite(),
-                                nextNext);
-                        if (numNewOppSides > oppMax) {
-                            oppMax = numNewOppSides;
-                        }
-                    }
-                }
-                int numNewSides = helperVal(p, next);
-                if (numNewSides - oppMax > max) {
-                    max = numNewSides - oppMax;
-                }
+        for (int i = 1; i < numMoves; i += 1) {
+            int m = moves[i], score = scores[i];
+            int j;
+            for (j = i; j > 0 && scores[j - 1] < score; j -= 1) {
+                moves[j] = moves[j - 1];
+                scores[j] = scores[j - 1];
             }
+            moves[j] = m;
+            scores[j] = score;
         }
-        return helperVal(p, b) + max;
     }
 
-    /** Returns a helper value of board B for player P for
-     *  the heuristic value. */
-    private int helperVal(Side p, Board b) {
-        int numSides = ((MutableBoard) b).numOfSide(p);
-        boolean full = numSides == b.size() * b.size();
-        return full ? Integer.MAX_VALUE : numSides;
+    /** Returns the move recorded in the transposition table for B,
+     *  mapped back from B's canonical image to B, or -1 if there is
+     *  none. */
+    private int tableMove(Board b) {
+        int move = _table.move(b.canonicalKey());
+        if (move < 0) {
+            return -1;
+        }
+        int t = Symmetry.inverse(b.canonicalTransform());
+        return Symmetry.table(b.size())[t][move];
     }
 
+    /** Record that MOVE by P caused a cutoff in a search of depth D at
+     *  distance PLY from the root.  FIRST is true iff MOVE was the first
+     *  one tried. */
+    private void recordCutoff(Side p, int move, int d, int ply,
+                              boolean first) {
+        _stats.addCutoff(first);
+        if (ply < MAX_PLY && _killers[ply][0] != move) {
+            _killers[ply][1] = _killers[ply][0];
+            _killers[ply][0] = move;
+        }
+        int[] history = _history[p.ordinal()];
+        history[move] += d * d;
+        if (history[move] >= MAX_HISTORY) {
+            for (int i = 0; i < history.length; i += 1) {
+                history[i] /= 2;
+            }
+        }
+    }
+
+    /** Returns VALUE, found at distance PLY from the root, adjusted for
+     *  storage in the transposition table, where wins are measured from
+     *  the stored position rather than the root. */
+    private static int toTable(int value, int ply) {
+        if (value > WIN_VALUE - MAX_PLY) {
+            return value + ply;
+        } else if (value < -WIN_VALUE + MAX_PLY) {
+            return value - ply;
+        }
+        return value;
+    }
+
+    /** Returns the inverse of toTable(VALUE, PLY). */
+    private static int fromTable(int value, int ply) {
+        if (value > WIN_VALUE - MAX_PLY) {
+            return value - ply;
+        } else if (value < -WIN_VALUE + MAX_PLY) {
+            return value + ply;
+        }
+        return value;
+    }
+
+    /** Returns a copy of B, counting it in my statistics. */
+    private Board copy(Board b) {
+        _stats.addCopy();
+        return new MutableBoard(b);
+    }
+
+    /** Returns the minimax value of B for P, the player to move,
+     *  searching D plies. */
+    int searchValue(Board b, Side p, int d) {
+        _stats.start();
+        _stats.setDepth(d);
+        _quiescenceNodes = 0;
+        int value = minimax(p, b, d, -WIN_VALUE, WIN_VALUE, 0);
+        _stats.stop();
+        return value;
+    }
+
+    /** Turn move ordering in the search on iff ON.  With it off, moves
+     *  are tried in order of square number. */
+    void setOrdering(boolean on) {
+        _ordering = on;
+    }
+
+    /** Search spills for up to DEPTH plies past the full-width search,
+     *  visiting at most BUDGET positions doing so in each search to a
+     *  fixed depth, and so in each iteration of an iterative-deepening
+     *  search.  A DEPTH of 0 turns off the quiescence search. */
+    void setQuiescence(int depth, int budget) {
+        _quiescenceDepth = depth;
+        _quiescenceBudget = budget;
+    }
+
+    /** Let my solver visit at most NODES positions when trying to solve
+     *  a position.  A NODES of 0 turns off the solver. */
+    void setSolverBudget(int nodes) {
+        _solverNodes = nodes;
+    }
+
+    /** Forget what my earlier searches learned: my transposition table,
+     *  killer moves, history scores, and solved positions.  My next
+     *  search then depends only on its position. */
+    void clearTables() {
+        _table.clear();
+        _solver.clear();
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        for (int[] history : _history) {
+            Arrays.fill(history, 0);
+        }
+    }
+
+    /** Returns the statistics of my last search.  They are overwritten
+     *  by my next search. */
+    SearchStats stats() {
+        return _stats;
+    }
+
+    /** Returns heuristic value of board B for player P.
+     *  Higher is better for P.  Values lie strictly between -WIN_VALUE
+     *  and WIN_VALUE. */
+    private int staticEval(Side p, Board b) {
+        _stats.addEvaluation();
+        if (b.numOfSide(p) == b.size() * b.size()) {
+            return WIN_VALUE - MAX_PLY;
+        }
+        if (b.numOfSide(p.opposite())
+            == b.size() * b.size()) {
+            return -WIN_VALUE + MAX_PLY;
+        }
+        return Math.max(-WIN_VALUE + MAX_PLY,
+                        Math.min(WIN_VALUE - MAX_PLY,
+                                 _evaluator.evaluate(b, p)));
+    }
+
+    /** Use EVALUATOR to judge positions and quiet moves. */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /** Value of a won position for the winner.  Wins found closer to the
+     *  root of the search have higher values. */
+    static final int WIN_VALUE = Integer.MAX_VALUE / 2;
+
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+    /** A timed search expects each iteration to take at least this many
+     *  times as long as the one before, and does not begin one that
+     *  would end past its (stretched) soft limit. */
+    private static final long NEXT_ITERATION_FACTOR = 2;
+    /** Under a game clock, my solver may visit at most this many
+     *  positions per millisecond of the soft limit, a cautious estimate
+     *  of its speed. */
+    private static final long SOLVER_NODES_PER_MILLI = 10;
+    /** A timed search reads the clock when the number of times it has
+     *  checked whether to abort, masked with this, is 0. */
+    private static final long CLOCK_MASK = 0xff;
+
+    /** Maximum distance from the root for which killer moves are kept;
+     *  also the margin below WIN_VALUE reserved for wins. */
+    private static final int MAX_PLY = 64;
+    /** Ordering score of the transposition-table move. */
+    private static final int TABLE_MOVE_SCORE = Integer.MAX_VALUE;
+    /** Ordering score of a spill onto the opponent. */
+    private static final int SPILL_SCORE = 1 << 30;
+    /** Ordering score of the first killer move. */
+    private static final int KILLER_SCORE = 1 << 29;
+    /** History scores are halved when one reaches this value. */
+    private static final int MAX_HISTORY = 1 << 28;
+
+    /** Best moves of positions I have searched. */
+    private final TranspositionTable _table =
+        new TranspositionTable(Defaults.TABLE_LOG_SIZE);
+    /** The two most recent moves that caused cutoffs at each ply. */
+    private final int[][] _killers = new int[MAX_PLY][2];
+    /** For each side and square, a score that grows each time a move to
+     *  that square causes a cutoff. */
+    private final int[][] _history = new int[Side.values().length]
+        [Defaults.MAX_BOARD_SIZE * Defaults.MAX_BOARD_SIZE];
+    /** Judge of positions and quiet moves. */
+    private Evaluator _evaluator;
+    /** True iff the search orders its moves. */
+    private boolean _ordering = true;
+    /** Maximum number of plies of spills searched at the leaves. */
+    private int _quiescenceDepth = Defaults.QUIESCENCE_DEPTH;
+    /** Maximum number of positions visited by one search to a fixed
+     *  depth in its quiescence search. */
+    private int _quiescenceBudget = Defaults.QUIESCENCE_NODES;
+    /** Number of positions visited so far by the quiescence search in
+     *  the current search to a fixed depth. */
+    private int _quiescenceNodes;
+    /** Proves wins in positions with many critical squares. */
+    private final Solver _solver = new Solver(Defaults.SOLVER_LOG_SIZE);
+    /** Maximum number of positions visited by one solve. */
+    private int _solverNodes = Defaults.SOLVER_NODES;
+    /** True iff the current search may be abandoned. */
+    private boolean _abortable;
+    /** True iff the current search has been abandoned. */
+    private boolean _aborted;
+    /** True iff the current search is to stop at _deadline. */
+    private boolean _timed;
+    /** Number of times checkAbort has been called. */
+    private long _checks;
+    /** Value of System.nanoTime() at which a timed search stops. */
+    private long _deadline;
+    /** Set (by any thread) to ask the current search to stop. */
+    private volatile boolean _stopRequested;
+    /** Depth of the deepest search completed by search. */
+    private int _searchDepth;
+    /** Value of the best move found by the last root search. */
+    private int _rootValue;
+    /** Counts of the work done by my current or last search. */
+    private final SearchStats _stats = new SearchStats();
+
 }
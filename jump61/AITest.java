@@ -0,0 +1,439 @@
+package jump61;
+
+import static jump61.Side.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of the AI player.
+ *  @author Randy Shi
+ */
+public class AITest {
+
+    /** Returns a new AI playing COLOR in a game with no input. */
+    private AI newAI(Side color) {
+        Game game = new Game(new StringReader(""), new StringWriter(),
+                             new StringWriter(), new StringWriter());
+        return new AI(game, color);
+    }
+
+    /** Returns an N x N board after MOVES random legal moves chosen
+     *  using SEED, stopping early if someone wins. */
+    private Board randomBoard(int n, int moves, long seed) {
+        Random random = new Random(seed);
+        Board b = new MutableBoard(n);
+        for (int k = 0; k < moves && b.getWinner() == null; k += 1) {
+            Side p = b.whoseMove();
+            int sq;
+            do {
+                sq = random.nextInt(n * n);
+            } while (!b.isLegal(p, sq));
+            b.addSpot(p, sq);
+        }
+        return b;
+    }
+
+    @Test
+    public void testOrderingKeepsValue() {
+        for (long seed = 1; seed <= 3; seed += 1) {
+            Board b = randomBoard(4, 12, seed);
+            AI plain = newAI(b.whoseMove());
+            plain.setOrdering(false);
+            plain.setQuiescence(0, 0);
+            AI ordered = newAI(b.whoseMove());
+            ordered.setQuiescence(0, 0);
+            int expected = plain.searchValue(b, b.whoseMove(), 3);
+            assertEquals(expected, ordered.searchValue(b, b.whoseMove(), 3));
+            assertTrue(ordered.stats().nodes() <= plain.stats().nodes());
+            assertTrue(ordered.stats().firstMoveCutoffs()
+                       <= ordered.stats().cutoffs());
+        }
+    }
+
+    @Test
+    public void testQuiescenceBudget() {
+        Board b = randomBoard(4, 20, 7);
+        AI ai = newAI(b.whoseMove());
+        ai.setQuiescence(Defaults.QUIESCENCE_DEPTH, 50);
+        ai.searchValue(b, b.whoseMove(), 2);
+        assertTrue(ai.stats().quiescenceNodes() > 0);
+        assertTrue(ai.stats().quiescenceNodes() <= 50);
+        ai.clearTables();
+        ai.search(b, 3, -1);
+        assertEquals(3, ai.searchDepth());
+        assertTrue(ai.stats().quiescenceNodes() > 50);
+        assertTrue(ai.stats().quiescenceNodes() <= 3 * 50);
+        ai.setQuiescence(0, 0);
+        ai.searchValue(b, b.whoseMove(), 2);
+        assertEquals(0, ai.stats().quiescenceNodes());
+    }
+
+    @Test
+    public void testReadWeights() throws IOException {
+        LinearEvaluator eval = LinearEvaluator.read(
+            new StringReader("owned = 7\npreference.inner = 9\n"));
+        assertEquals(7, eval.weights()[Features.OWNED]);
+        assertEquals(Defaults.EVAL_WEIGHTS[Features.EDGES],
+                     eval.weights()[Features.EDGES]);
+        Board b = new MutableBoard(3);
+        b.set(2, 2, 2, RED);
+        b.set(1, 1, 1, BLUE);
+        assertEquals(9, eval.preference(b, RED, b.sqNum(2, 2)));
+        assertEquals(-Defaults.EVAL_WEIGHTS[Features.CORNERS],
+                     eval.evaluate(b, RED));
+    }
+
+    @Test
+    public void testTuner() throws IOException {
+        double[] theta = { 10, 10, 10 };
+        Tuner.step(theta, new int[] { 1, -1, 1 }, 0.5, 4, 2);
+        assertArrayEquals(new double[] { 10.5, 9.5, 10.5 }, theta, 1e-9);
+        Tuner.step(theta, new int[] { 1, 1, -1 }, -0.25, 4, 2);
+        assertArrayEquals(new double[] { 10.25, 9.25, 10.75 }, theta,
+                          1e-9);
+
+        Tuner tuner = new Tuner(3, 2, 2);
+        LinearEvaluator standard = LinearEvaluator.standard();
+        LinearEvaluator flat =
+            new LinearEvaluator(new int[standard.weights().length],
+                                standard.preferences());
+        assertEquals(0, tuner.match(standard, standard, 5), 0);
+        double score = tuner.match(standard, flat, 4);
+        assertTrue(score != 0);
+        assertEquals(0, score * 4 % 1, 0);
+        assertEquals(-score, tuner.match(flat, standard, 4), 0);
+
+        File checkpoint = File.createTempFile("jump61", ".properties");
+        checkpoint.deleteOnExit();
+        LinearEvaluator best =
+            tuner.tune(standard, 2, 3, checkpoint.getPath());
+        assertArrayEquals(best.weights(),
+                          LinearEvaluator.read(checkpoint.getPath())
+                          .weights());
+    }
+
+    @Test
+    public void testFindsWin() {
+        Board b = new MutableBoard(2);
+        b.set(1, 1, 2, RED);
+        b.set(1, 2, 1, RED);
+        b.set(2, 1, 1, BLUE);
+        b.set(2, 2, 1, RED);
+        AI ai = newAI(RED);
+        assertTrue(ai.searchValue(b, RED, 2) > AI.WIN_VALUE / 2);
+    }
+
+    @Test
+    public void testInstantWin() {
+        Board b = new MutableBoard(3);
+        b.set(1, 1, 2, RED);
+        b.set(1, 2, 3, RED);
+        b.set(1, 3, 2, BLUE);
+        b.set(2, 3, 2, BLUE);
+        b.set(2, 1, 3, RED);
+        b.set(2, 2, 1, RED);
+        b.set(3, 1, 1, RED);
+        b.set(3, 2, 1, RED);
+        b.set(3, 3, 1, RED);
+        AI ai = newAI(RED);
+        int move = ai.chooseMove(b);
+        assertTrue(b.winsAt(RED, move));
+        b.addSpot(RED, move);
+        assertEquals(RED, b.getWinner());
+    }
+
+    @Test
+    public void testSolver() {
+        Solver solver = new Solver(12);
+        for (long seed = 1; seed <= 4; seed += 1) {
+            Board b = randomBoard(3, 14, seed);
+            Side p = b.whoseMove();
+            int result = solver.solve(b, 1000000);
+            assertNotEquals(Solver.UNKNOWN, result);
+            boolean wins =
+                newAI(p).searchValue(b, p, 12) > AI.WIN_VALUE / 2;
+            assertEquals(wins, result == Solver.PROVEN);
+            if (result == Solver.PROVEN) {
+                b.addSpot(p, solver.move());
+                assertTrue(b.getWinner() == p
+                           || solver.solve(b, 1000000) == Solver.DISPROVEN);
+            }
+        }
+        assertEquals(Solver.UNKNOWN, solver.solve(new MutableBoard(6), 10));
+    }
+
+    @Test
+    public void testTimeManager() {
+        TimeManager clock = new TimeManager(10000, 100);
+        Board b = new MutableBoard(4);
+        long soft = clock.softLimit(b, RED), hard = clock.hardLimit(b, RED);
+        assertTrue(0 < soft && soft <= hard && hard < 10000);
+        assertTrue(TimeManager.extend(soft, hard, 1) > soft);
+        assertEquals(hard, TimeManager.extend(soft, hard, 100));
+        Board later = randomBoard(4, 20, 44);
+        assertTrue(TimeManager.movesLeft(later) < TimeManager.movesLeft(b));
+        clock.start(RED);
+        assertTrue(clock.stop(RED, true));
+        assertTrue(clock.remaining(RED) > 10000 - 50);
+        assertEquals(10000, clock.remaining(BLUE));
+        clock = new TimeManager(0, 0);
+        assertEquals(0, clock.hardLimit(b, BLUE));
+        clock.start(BLUE);
+        while (clock.remaining(BLUE) >= 0 && clock.stop(BLUE, false)) {
+            clock.start(BLUE);
+        }
+        assertTrue(clock.remaining(BLUE) < 0);
+    }
+
+    @Test
+    public void testGameClock() {
+        StringWriter output = new StringWriter();
+        Game game = new Game(new StringReader("size 4\nclock 1 0.01\n"
+                                              + "auto red\nstart\n"
+                                              + "clock\nquit\n"),
+                             new StringWriter(), output, output);
+        game.play();
+        assertTrue(output.toString().contains("wins."));
+        assertFalse(output.toString().contains("on time"));
+        assertTrue(output.toString().matches("(?s).*Red 0:.*, Blue 0:.*"));
+    }
+
+    @Test
+    public void testAbbreviations() {
+        StringWriter output = new StringWriter();
+        Game game = new Game(new StringReader("size 3\nclo 5\nstart\n"
+                                              + "1 1\nc\nclo\ncl\n"
+                                              + "s\nsee 7\nquit\n"),
+                             new StringWriter(), output, output);
+        game.play();
+        assertEquals(new MutableBoard(3), new MutableBoard(game.getBoard()));
+        assertTrue(output.toString().matches("(?s).*Red 0:05.*"));
+        assertTrue(output.toString()
+                   .contains("s is not a unique command abbreviation"));
+        assertFalse(output.toString().contains("see is not"));
+        Game seeded = SelfPlay.newGame();
+        seeded.setSeed(7);
+        assertEquals(seeded.randInt(1000), game.randInt(1000));
+    }
+
+    @Test
+    public void testSprt() {
+        assertEquals(0, Match.elo(0.5), 1e-9);
+        assertEquals(0.5, Match.expectedScore(0), 1e-9);
+        assertEquals(100, Match.elo(Match.expectedScore(100)), 1e-9);
+        double[] interval = Match.eloInterval(60, 100);
+        assertTrue(interval[0] < Match.elo(0.6)
+                   && Match.elo(0.6) < interval[1]);
+        Match.Sprt winning = new Match.Sprt(0, 10, 0.05, 0.05),
+            losing = new Match.Sprt(0, 10, 0.05, 0.05);
+        for (int k = 0; k < 10000 && winning.status() == 0; k += 1) {
+            winning.add(k % 3 != 0);
+        }
+        for (int k = 0; k < 10000 && losing.status() == 0; k += 1) {
+            losing.add(k % 3 == 0);
+        }
+        assertEquals(Match.Sprt.H1, winning.status());
+        assertEquals(Match.Sprt.H0, losing.status());
+
+        StringWriter output = new StringWriter();
+        Match match = new Match(3, LinearEvaluator.standard(),
+                                LinearEvaluator.standard(), 2);
+        match.run(new Match.Sprt(0, 10, 0.05, 0.05), 6, 45,
+                  new PrintWriter(output));
+        assertTrue(output.toString().contains("games 6:"));
+        assertTrue(output.toString().contains("Inconclusive."));
+    }
+
+    @Test
+    public void testIterativeDeepening() {
+        Board b = randomBoard(5, 10, 39);
+        AI ai = newAI(b.whoseMove());
+        int move = ai.search(b, 3, -1);
+        assertTrue(b.isLegal(b.whoseMove(), move));
+        assertEquals(3, ai.searchDepth());
+        ai.stop();
+        move = ai.search(b, Engine.MAX_DEPTH, -1);
+        assertTrue(b.isLegal(b.whoseMove(), move));
+        assertEquals(1, ai.searchDepth());
+        assertTrue(ai.search(b, Engine.MAX_DEPTH, 0) >= 0);
+        assertTrue(ai.searchDepth() >= 1);
+    }
+
+    @Test
+    public void testEngineProtocol() throws IOException {
+        Board b = randomBoard(4, 6, 39);
+        StringWriter output = new StringWriter();
+        String packed = Engine.pack(b);
+        new Engine(new StringReader("isready\nposition " + packed
+                                    + "\ngo depth 2\nposition 0102\n"
+                                    + "go sideways\nfrobnicate\nquit\n"
+                                    + "go\n"),
+                   output).run();
+        String[] lines = output.toString().split("\\R");
+        assertEquals("readyok", lines[0]);
+        assertTrue(lines[1].startsWith("info depth 2 "));
+        String[] reply = lines[2].split(" ");
+        assertEquals("bestmove", reply[0]);
+        assertTrue(b.isLegal(b.whoseMove(), Integer.parseInt(reply[1]),
+                             Integer.parseInt(reply[2])));
+        assertTrue(lines[3].startsWith("error "));
+        assertTrue(lines[4].startsWith("error "));
+        assertTrue(lines[5].startsWith("error "));
+        assertEquals(6, lines.length);
+        MutableBoard copy = new MutableBoard(2);
+        Engine.unpack(packed, copy);
+        assertEquals(b, copy);
+    }
+
+    @Test
+    public void testAnalyzer() throws IOException {
+        Board b = randomBoard(4, 6, 41);
+        Board won = randomBoard(2, 40, 41);
+        assertNotNull(won.getWinner());
+        List<String> positions =
+            Analyzer.readText(new StringReader("# positions\n"
+                                               + Engine.pack(b) + "\n\n"
+                                               + randomBoard(5, 9, 41)
+                                               + "\n" + won + "\n"));
+        assertEquals(3, positions.size());
+        assertEquals(Engine.pack(b), positions.get(0));
+        Analyzer.Analysis[] one =
+            new Analyzer(2, -1, 1).analyze(positions);
+        Analyzer.Analysis[] two =
+            new Analyzer(2, -1, 2).analyze(positions);
+        assertTrue(b.isLegal(b.whoseMove(), one[0].move()));
+        assertEquals(-1, one[2].move());
+        for (int i = 0; i < 2; i += 1) {
+            assertEquals(one[i].move(), two[i].move());
+            assertEquals(one[i].value(), two[i].value());
+            assertEquals(one[i].nodes(), two[i].nodes());
+            assertEquals(2, one[i].depth());
+        }
+        StringWriter output = new StringWriter();
+        Analyzer.write(positions, one, new PrintWriter(output));
+        assertTrue(output.toString().endsWith("2 none\n"));
+        try {
+            Analyzer.readText(new StringReader("===\n1r 2x\n===\n"));
+            fail("malformed dump accepted");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testSuite() throws IOException {
+        Suite generated = Suite.generate(4, 3, 42, 5000);
+        StringBuilder text = new StringBuilder("# suite\n\n");
+        MutableBoard board = new MutableBoard(3);
+        for (Suite.Problem problem : generated.problems()) {
+            Engine.unpack(problem.position(), board);
+            text.append(problem.toString(board)).append("\n");
+        }
+        Suite suite = Suite.read(new StringReader(text.toString()));
+        assertEquals(4, suite.problems().size());
+        StringWriter output = new StringWriter();
+        assertEquals(4, suite.run(100, 2, new PrintWriter(output)));
+        assertTrue(output.toString(),
+                   output.toString().startsWith("100 ms: 4 of 4 solved"));
+        for (String bad : new String[] { "0101 x", "12010101 x 1:1",
+                                         "12121212 x 3:1", "0102 x 1" }) {
+            try {
+                Suite.read(new StringReader(bad));
+                fail("accepted " + bad);
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
+    @Test
+    public void testPonder() throws InterruptedException {
+        Board b = randomBoard(4, 8, 40);
+        Side opponent = b.whoseMove();
+        AI fresh = newAI(opponent.opposite());
+        AI pondered = newAI(opponent.opposite());
+        pondered.ponder(b, 3);
+        long freshNodes = 0, ponderedNodes = 0;
+        for (int m = 0; m < 16; m += 1) {
+            if (b.isLegal(opponent, m)) {
+                Board next = new MutableBoard(b);
+                next.addSpot(opponent, m);
+                assertEquals(fresh.searchValue(next, opponent.opposite(), 2),
+                             pondered.searchValue(next, opponent.opposite(),
+                                                  2));
+                freshNodes += fresh.stats().nodes();
+                ponderedNodes += pondered.stats().nodes();
+            }
+        }
+        assertTrue(ponderedNodes < freshNodes);
+
+        AI ai = newAI(RED);
+        Board start = new MutableBoard(6);
+        Thread thread = new Thread(() -> ai.ponder(start, Engine.MAX_DEPTH));
+        thread.start();
+        Thread.sleep(PONDER_MILLIS);
+        ai.stop();
+        thread.join(PONDER_MILLIS * 100);
+        assertFalse("pondering did not stop", thread.isAlive());
+    }
+
+    @Test
+    public void testPonderFinished()
+        throws IOException, InterruptedException {
+        PipedWriter commandWriter = new PipedWriter();
+        StringWriter trash = new StringWriter();
+        Game game = new Game(new PipedReader(commandWriter), trash, trash,
+                             trash);
+        Thread gameThread = new Thread(game::play);
+        gameThread.setDaemon(true);
+        gameThread.start();
+        PrintWriter commands = new PrintWriter(commandWriter, true);
+        String[] rows = {
+            "2b 3b 2b 2r", "3b 2b 2r 1r", "3r 2b 4r 3r", "1- 3r 1r 2r",
+        };
+        commands.println("size 4");
+        for (int r = 1; r <= rows.length; r += 1) {
+            String[] squares = rows[r - 1].split(" ");
+            for (int c = 1; c <= squares.length; c += 1) {
+                if (!squares[c - 1].equals("1-")) {
+                    commands.printf("set %d %d %c %c%n", r, c,
+                                    squares[c - 1].charAt(0),
+                                    squares[c - 1].charAt(1));
+                }
+            }
+        }
+        commands.printf("ponder on%nclock 5%nstart%n");
+        long deadline = System.currentTimeMillis() + PONDER_MILLIS * 100;
+        while (!game.gameInProgress()) {
+            assertTrue("game did not start",
+                       System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        Thread.sleep(PONDER_MILLIS);
+        Board before = game.getPublishedBoard();
+        commands.println("3 3");
+        while (game.getPublishedBoard() == before
+               || game.getPublishedBoard().whoseMove() != RED) {
+            assertTrue("blue did not move",
+                       System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        assertTrue(((AI) game.getPlayer(BLUE)).searchDepth() > 1);
+        commands.println("quit");
+        gameThread.join(PONDER_MILLIS * 100);
+    }
+
+    /** Milliseconds for which testPonder lets the AI ponder. */
+    private static final long PONDER_MILLIS = 50;
+
+}
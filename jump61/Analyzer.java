@@ -0,0 +1,316 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ucb.util.CommandArgs;
+
+import static jump61.GameException.error;
+
+/** Analyzes many positions in parallel, searching each to a fixed depth
+ *  or for a fixed time, and records the best move, its value, and the
+ *  number of positions visited for each.  Positions come from a dataset
+ *  written by PositionWriter, or from a text file holding positions in
+ *  packed form (see Engine.pack), one per line, or in board-dump form
+ *  (as printed by the dump command), in any mixture.  In text files,
+ *  blank lines and lines starting with # are ignored.  Each thread has
+ *  its own AI players, whose tables are cleared before each position,
+ *  so that the analysis of a position at a fixed depth does not depend
+ *  on which thread did it or on what it did before.
+ *  @author Randy Shi
+ */
+public class Analyzer {
+
+    /** An analyzer that searches each position to MAXDEPTH plies, for
+     *  at most MILLIS milliseconds if MILLIS >= 0, on THREADS
+     *  threads. */
+    Analyzer(int maxDepth, long millis, int threads) {
+        _maxDepth = maxDepth;
+        _millis = millis;
+        _threads = threads;
+    }
+
+    /** Analyze POSITIONS, in packed form, and return the results, in the
+     *  same order. */
+    Analysis[] analyze(List<String> positions) {
+        Analysis[] results = new Analysis[positions.size()];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int k = 0; k < _threads; k += 1) {
+            workers.add(pool.submit(() -> {
+                Game game = SelfPlay.newGame();
+                AI[] players = new AI[Side.values().length];
+                for (Side side : new Side[] { Side.RED, Side.BLUE }) {
+                    players[side.ordinal()] = new AI(game, side);
+                }
+                MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+                for (int i = next.getAndIncrement(); i < results.length;
+                     i = next.getAndIncrement()) {
+                    Engine.unpack(positions.get(i), board);
+                    results[i] = analyze(board, players);
+                }
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /** Returns the analysis of B by whichever of PLAYERS, indexed by
+     *  Side ordinal, is to move. */
+    private Analysis analyze(Board b, AI[] players) {
+        if (b.getWinner() != null) {
+            return new Analysis(-1, 0, 0, 0, 0);
+        }
+        AI ai = players[b.whoseMove().ordinal()];
+        ai.clearTables();
+        int move = ai.search(b, _maxDepth, _millis);
+        SearchStats stats = ai.stats();
+        return new Analysis(move, ai.rootValue(), ai.searchDepth(),
+                            stats.nodes(), stats.nanos());
+    }
+
+    /** The result of analyzing one position. */
+    static class Analysis {
+
+        /** The analysis of a position in which the best move is MOVE
+         *  (-1 if the game is over), with value VALUE for the side to
+         *  move, found by a search of depth DEPTH that visited NODES
+         *  positions in NANOS nanoseconds. */
+        Analysis(int move, int value, int depth, long nodes, long nanos) {
+            _move = move;
+            _value = value;
+            _depth = depth;
+            _nodes = nodes;
+            _nanos = nanos;
+        }
+
+        /** Returns the best move, or -1 if the game is over. */
+        int move() {
+            return _move;
+        }
+
+        /** Returns the value of the best move. */
+        int value() {
+            return _value;
+        }
+
+        /** Returns the depth of the deepest completed search. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Returns the number of positions visited. */
+        long nodes() {
+            return _nodes;
+        }
+
+        /** Returns the time taken, in nanoseconds. */
+        long nanos() {
+            return _nanos;
+        }
+
+        /** The best move, or -1. */
+        private final int _move;
+        /** The value of _move. */
+        private final int _value;
+        /** The depth searched. */
+        private final int _depth;
+        /** Positions visited. */
+        private final long _nodes;
+        /** Time taken in nanoseconds. */
+        private final long _nanos;
+    }
+
+    /** Returns the positions in the file named FILENAME, in packed form.
+     *  The file may be a position dataset or a text file (see above).
+     *  Throws a GameException if a position in a text file is
+     *  malformed. */
+    static List<String> read(String fileName) throws IOException {
+        int magic;
+        try (DataInputStream in =
+             new DataInputStream(new FileInputStream(fileName))) {
+            magic = in.available() >= Integer.BYTES ? in.readInt() : 0;
+        }
+        if (magic == PositionWriter.MAGIC) {
+            return readDataset(fileName);
+        }
+        try (Reader in = new FileReader(fileName)) {
+            return readText(in);
+        }
+    }
+
+    /** Returns the positions in the dataset named FILENAME, in packed
+     *  form. */
+    static List<String> readDataset(String fileName) throws IOException {
+        List<String> positions = new ArrayList<>();
+        try (PositionReader in = new PositionReader(fileName)) {
+            MutableBoard board = new MutableBoard(in.size());
+            while (in.next()) {
+                in.copyTo(board);
+                positions.add(Engine.pack(board));
+            }
+        }
+        return positions;
+    }
+
+    /** Returns the positions in the text read from INPUT, in packed form.
+     *  Throws a GameException if one is malformed. */
+    static List<String> readText(Reader input) throws IOException {
+        BufferedReader in = new BufferedReader(input);
+        List<String> positions = new ArrayList<>();
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        StringBuilder dump = null;
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            line = line.trim();
+            if (dump != null) {
+                if (line.equals("===")) {
+                    positions.add(fromDump(dump.toString()));
+                    dump = null;
+                } else {
+                    dump.append(line).append(' ');
+                }
+            } else if (line.equals("===")) {
+                dump = new StringBuilder();
+            } else if (!line.isEmpty() && !line.startsWith("#")) {
+                Engine.unpack(line, board);
+                positions.add(line);
+            }
+        }
+        if (dump != null) {
+            throw error("unterminated board dump");
+        }
+        return positions;
+    }
+
+    /** Returns the packed form of the position whose board dump, without
+     *  its === lines, is DUMP.  Throws a GameException if DUMP is
+     *  malformed. */
+    private static String fromDump(String dump) {
+        StringBuilder packed = new StringBuilder();
+        Matcher mat = DUMP_SQUARE.matcher(dump);
+        int end = 0;
+        while (mat.lookingAt()) {
+            Side side = mat.group(2).equals("r") ? Side.RED
+                : mat.group(2).equals("b") ? Side.BLUE : Side.WHITE;
+            packed.append(String.format("%02x", GameRecordWriter.pack(
+                Square.square(side, Integer.parseInt(mat.group(1))))));
+            end = mat.end();
+            mat.region(end, dump.length());
+        }
+        if (end != dump.length()) {
+            throw error("bad board dump: %s", dump.trim());
+        }
+        Engine.unpack(packed.toString(), new MutableBoard(2));
+        return packed.toString();
+    }
+
+    /** Write RESULTS, the analyses of POSITIONS, to OUT, one per line as
+     *  INDEX R C VALUE DEPTH NODES, or INDEX none if the game is
+     *  over. */
+    static void write(List<String> positions, Analysis[] results,
+                      PrintWriter out) {
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        for (int i = 0; i < results.length; i += 1) {
+            Analysis result = results[i];
+            if (result.move() < 0) {
+                out.printf("%d none%n", i);
+            } else {
+                Engine.unpack(positions.get(i), board);
+                out.printf("%d %d %d %d %d %d%n", i,
+                           board.row(result.move()),
+                           board.col(result.move()), result.value(),
+                           result.depth(), result.nodes());
+            }
+        }
+        out.flush();
+    }
+
+    /** Analyze positions.  ARGS0 contains --in=FILE (the positions), and
+     *  may contain --depth=N (default Defaults.SEARCH_DEPTH), --movetime=T
+     *  (the time per position in milliseconds, which makes the depth
+     *  default to Engine.MAX_DEPTH), --threads=N, and --out=FILE (where
+     *  to write the results; default the standard output).  Reports the
+     *  rate of analysis on the standard error. */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--in=(.+) --depth=(\\d+){0,1} "
+                            + "--movetime=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--out=(.+){0,1}", args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Analyzer --in=FILE "
+                               + "[--depth=N] [--movetime=T] [--threads=N] "
+                               + "[--out=FILE]");
+            System.exit(1);
+        }
+        long millis = args.contains("--movetime")
+            ? Long.parseLong(args.getFirst("--movetime")) : -1;
+        int depth = Tuner.intArg(args, "--depth", millis >= 0
+                                 ? Engine.MAX_DEPTH : Defaults.SEARCH_DEPTH);
+        Analyzer analyzer =
+            new Analyzer(depth, millis,
+                         Tuner.intArg(args, "--threads",
+                                      Runtime.getRuntime()
+                                      .availableProcessors()));
+        List<String> positions;
+        try {
+            positions = read(args.getFirst("--in"));
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        long start = System.nanoTime();
+        Analysis[] results = analyzer.analyze(positions);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long nodes = 0;
+        for (Analysis result : results) {
+            nodes += result.nodes();
+        }
+        try (PrintWriter out = args.contains("--out")
+             ? new PrintWriter(new FileWriter(args.getFirst("--out")))
+             : new PrintWriter(new OutputStreamWriter(System.out))) {
+            write(positions, results, out);
+        }
+        System.err.printf("%d positions in %.2f s: %.1f positions/s, "
+                          + "%.0f nodes/s%n", results.length, seconds,
+                          results.length / seconds, nodes / seconds);
+    }
+
+    /** One square of a board dump: its spots and color. */
+    private static final Pattern DUMP_SQUARE =
+        Pattern.compile("\\s*([1-9])([rb-])\\s*");
+
+    /** Greatest depth of each search. */
+    private final int _maxDepth;
+    /** Time limit of each search in milliseconds, or -1 for none. */
+    private final long _millis;
+    /** Number of threads. */
+    private final int _threads;
+
+}
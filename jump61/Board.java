@@ -3,6 +3,7 @@ package jump61;
 
 import java.util.HashMap;
 import java.util.Observable;
+import java.util.Random;
 
 import static jump61.Side.*;
 
@@ -112,6 +113,80 @@ abstract class Board extends Observable {
     /** Return the number of squares of given COLOR. */
     abstract int numOfSide(Side color);
 
+    /** Returns the features of my current contents.  The result must
+     *  not be modified, and is valid only until I next change.  This
+     *  implementation computes them in one pass over the board. */
+    Features features() {
+        Features features = new Features();
+        features.compute(this);
+        return features;
+    }
+
+    /** Returns the value of FEATURE (one of the feature numbers defined
+     *  in Features) for SIDE on me. */
+    final int feature(Side side, int feature) {
+        return features().get(side, feature);
+    }
+
+    /** Returns the index of my critical squares (see CriticalIndex).  It
+     *  is valid only until I next change.  This implementation builds it
+     *  in one pass. */
+    CriticalIndex criticalIndex() {
+        return new CriticalIndex(this);
+    }
+
+    /** Returns the number of my squares that are critical: full, so that
+     *  they spill on their next spot. */
+    final int numCritical() {
+        return criticalIndex().count();
+    }
+
+    /** Returns a legal move for PLAYER that surely wins at once, judging
+     *  only from the components of my critical squares, without making
+     *  any move, or -1 if they show none. */
+    final int instantWin(Side player) {
+        return criticalIndex().winningMove(player);
+    }
+
+    /** Returns true iff a move by PLAYER to square #N, which must be
+     *  legal, surely wins at once, judging as instantWin does. */
+    final boolean winsAt(Side player, int n) {
+        return criticalIndex().winsAt(player, n);
+    }
+
+    /** Returns an immutable board with my current contents, which does
+     *  not change when I do. */
+    PersistentBoard snapshot() {
+        return PersistentBoard.copyOf(this);
+    }
+
+    /** Returns a 64-bit hash key of my contents, suitable for indexing
+     *  transposition tables.  Equal boards have equal keys. */
+    abstract long key();
+
+    /** Returns the canonical key of my contents: the least key() of my
+     *  images under the symmetries of the board (see Symmetry).  Boards
+     *  that are symmetric images of each other have equal canonical
+     *  keys. */
+    long canonicalKey() {
+        return Symmetry.canonicalKey(this);
+    }
+
+    /** Returns the symmetry that maps me onto the board whose key() is my
+     *  canonicalKey(). */
+    int canonicalTransform() {
+        return Symmetry.canonicalTransform(this);
+    }
+
+    /** Returns the contribution of square #N holding SQ to key(). White
+     *  squares contribute nothing. */
+    static long squareKey(int n, Square sq) {
+        if (sq.getSide() == WHITE) {
+            return 0;
+        }
+        return ZOBRIST[n][sq.getSide().ordinal()][sq.getSpots()];
+    }
+
     /** Add a spot from PLAYER at row R, column C.  Assumes
      *  isLegal(PLAYER, R, C). */
     void addSpot(Side player, int r, int c) {
@@ -207,6 +282,27 @@ abstract class Board extends Observable {
         throw new UnsupportedOperationException(msg);
     }
 
+    /** Seed for the random square keys, fixed so that keys are the same
+     *  from run to run. */
+    private static final long ZOBRIST_SEED = 61;
+
+    /** Random keys for each square number, color, and number of spots
+     *  (up to the 9 that Square allows). */
+    private static final long[][][] ZOBRIST =
+        new long[Defaults.MAX_BOARD_SIZE * Defaults.MAX_BOARD_SIZE]
+        [Side.values().length][10];
+
+    static {
+        Random keys = new Random(ZOBRIST_SEED);
+        for (long[][] sq : ZOBRIST) {
+            for (long[] side : sq) {
+                for (int k = 0; k < side.length; k += 1) {
+                    side[k] = keys.nextLong();
+                }
+            }
+        }
+    }
+
     /** The length of an end of line on this system. */
     private static final int NL_LENGTH =
         System.getProperty("line.separator").length();
@@ -3,6 +3,17 @@ package jump61;
 
 import static jump61.Side.*;
 
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -12,6 +23,8 @@ import static org.junit.Assert.*;
 public class BoardTest {
 
     private static final String NL = System.getProperty("line.separator");
+    /** Milliseconds to wait for a reader thread to finish. */
+    private static final long READER_TIMEOUT = 10000;
 
     @Test
     public void testClear() {
@@ -156,6 +169,260 @@ public class BoardTest {
         checkBoard("#3", B, 1, 1, 1, RED, 2, 1, 3, RED, 1, 2, 2, RED);
     }
 
+    @Test
+    public void testIncrementalFeatures() {
+        Random random = new Random(61);
+        Board B = new MutableBoard(5);
+        B.set(3, 3, 4, BLUE);
+        while (B.getWinner() == null) {
+            Side p = B.whoseMove();
+            int sq = random.nextInt(25);
+            if (!B.isLegal(p, sq)) {
+                continue;
+            }
+            B.addSpot(p, sq);
+            Features expected = new Features();
+            expected.compute(B);
+            for (Side side : Side.values()) {
+                for (int f = 0; f < Features.NUM_FEATURES; f += 1) {
+                    assertEquals("feature " + f + " of " + side,
+                                 expected.get(side, f), B.feature(side, f));
+                }
+            }
+            assertEquals(new MutableBoard(new ConstantBoard(B)).key(),
+                         B.key());
+        }
+    }
+
+    @Test
+    public void testSymmetry() {
+        Board B = new MutableBoard(4);
+        B.set(1, 2, 2, RED);
+        B.set(4, 1, 3, BLUE);
+        long key = Symmetry.canonicalKey(B);
+        for (int t = 0; t < Symmetry.COUNT; t += 1) {
+            Board image = Symmetry.transform(B, t);
+            assertEquals("canonical key " + t, key,
+                         Symmetry.canonicalKey(image));
+            assertEquals("inverse " + t, B,
+                         Symmetry.transform(image, Symmetry.inverse(t)));
+        }
+        Board C = new MutableBoard(4);
+        C.set(1, 2, 3, RED);
+        assertNotEquals(key, Symmetry.canonicalKey(C));
+    }
+
+    @Test
+    public void testCanonicalKey() {
+        Random random = new Random(35);
+        Board B = new MutableBoard(4);
+        while (B.getWinner() == null) {
+            int sq = random.nextInt(16);
+            if (!B.isLegal(B.whoseMove(), sq)) {
+                continue;
+            }
+            B.addSpot(B.whoseMove(), sq);
+            long key = B.canonicalKey();
+            assertEquals(Symmetry.canonicalKey(B), key);
+            assertEquals(key, Symmetry.transform(B,
+                                                 B.canonicalTransform())
+                         .key());
+            assertEquals(key, new MutableBoard(B).canonicalKey());
+        }
+    }
+
+    @Test
+    public void testPersistentBoard() {
+        Random random = new Random(36);
+        MutableBoard B = new MutableBoard(4);
+        PersistentBoard P = new PersistentBoard(4);
+        List<Board> snapshots = new ArrayList<>();
+        List<Board> copies = new ArrayList<>();
+        while (B.getWinner() == null) {
+            int sq = random.nextInt(16);
+            Side p = B.whoseMove();
+            if (!B.isLegal(p, sq)) {
+                continue;
+            }
+            snapshots.add(B.snapshot());
+            copies.add(new MutableBoard(B));
+            B.addSpot(p, sq);
+            P = P.play(p, sq);
+            assertEquals(B, P);
+            assertEquals(P, B);
+            assertEquals(B.hashCode(), P.hashCode());
+            assertEquals(B.key(), P.key());
+            assertEquals(B.canonicalKey(), P.canonicalKey());
+            assertEquals(B.numPieces(), P.numPieces());
+            for (Side side : Side.values()) {
+                assertEquals(B.numOfSide(side), P.numOfSide(side));
+            }
+        }
+        assertEquals(B.getWinner(), P.getWinner());
+        assertSame(B.snapshot(), B.snapshot());
+        for (int i = 0; i < copies.size(); i += 1) {
+            assertEquals("snapshot " + i, copies.get(i), snapshots.get(i));
+            assertEquals(copies.get(i).key(), snapshots.get(i).key());
+        }
+    }
+
+    @Test
+    public void testPublishedVersions() throws InterruptedException {
+        MutableBoard B = new MutableBoard(5);
+        assertNull(B.published());
+        B.startPublishing();
+        AtomicInteger bad = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            Board last = null;
+            while (last == null || last.getWinner() == null) {
+                Board version = B.published();
+                if (version == last) {
+                    continue;
+                }
+                int spots = 0, red = 0;
+                for (int n = 0; n < 25; n += 1) {
+                    spots += version.get(n).getSpots();
+                    red += version.get(n).getSide() == RED ? 1 : 0;
+                }
+                if (version.getWinner() == null
+                    && spots != version.numPieces()
+                    || red != version.numOfSide(RED)
+                    || version.key() != Symmetry.transform(version, 0)
+                    .key()) {
+                    bad.incrementAndGet();
+                }
+                last = version;
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+        Random random = new Random(37);
+        while (B.getWinner() == null) {
+            int sq = random.nextInt(25);
+            if (B.isLegal(B.whoseMove(), sq)) {
+                Board before = B.published();
+                B.addSpot(B.whoseMove(), sq);
+                assertNotSame(before, B.published());
+                assertEquals(B, B.published());
+            }
+        }
+        reader.join(READER_TIMEOUT);
+        assertFalse("reader missed the end", reader.isAlive());
+        assertEquals(0, bad.get());
+    }
+
+    /** Returns the published board of GAME once it satisfies DONE,
+     *  failing if it takes longer than READER_TIMEOUT. */
+    private Board awaitBoard(Game game,
+                             Predicate<Board> done)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + READER_TIMEOUT;
+        while (true) {
+            Board board = game.getPublishedBoard();
+            if (done.test(board)) {
+                return board;
+            }
+            assertTrue("game did not respond",
+                       System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testPipedGame() throws IOException, InterruptedException {
+        PipedWriter commandWriter = new PipedWriter();
+        StringWriter trash = new StringWriter();
+        Game game = new Game(new PipedReader(commandWriter,
+                                             Main.COMMAND_BUFFER_SIZE),
+                             trash, trash, trash);
+        int[] exit = { -1 };
+        Thread gameThread = new Thread(() -> exit[0] = game.play());
+        gameThread.setDaemon(true);
+        gameThread.start();
+        PrintWriter commands = new PrintWriter(commandWriter);
+        commands.printf("size 3%nclear%nstart%n");
+        commands.flush();
+        awaitBoard(game, b -> b.size() == 3);
+        commands.printf("%d %d%n", 1, 1);
+        commands.flush();
+        Board board = awaitBoard(game, b -> b.numOfSide(BLUE) > 0);
+        assertEquals(RED, board.whoseMove());
+        assertEquals(1, board.numOfSide(RED));
+        for (int k = 0; k < Main.COMMAND_BUFFER_SIZE; k += 1) {
+            commands.printf("seed %d%n", k);
+        }
+        commands.printf("2 2%nclear%nsize 4%n");
+        commands.flush();
+        assertEquals(RED, awaitBoard(game, b -> b.size() == 4)
+                     .whoseMove());
+        commands.printf("quit%n");
+        commands.flush();
+        gameThread.join(READER_TIMEOUT);
+        assertFalse("game did not quit", gameThread.isAlive());
+        assertEquals(0, exit[0]);
+    }
+
+    @Test
+    public void testCriticalIndex() {
+        Board B = new MutableBoard(2);
+        B.set(1, 1, 2, RED);
+        B.set(1, 2, 2, BLUE);
+        B.set(2, 1, 1, BLUE);
+        assertEquals(2, B.numCritical());
+        assertEquals(1, B.criticalIndex().numComponents());
+        assertEquals(4, B.criticalIndex().reach(B.sqNum(1, 1)));
+        assertTrue(B.winsAt(RED, B.sqNum(1, 1)));
+        assertFalse(B.winsAt(RED, B.sqNum(2, 2)));
+        assertEquals(B.sqNum(1, 1), B.instantWin(RED));
+        assertEquals(B.sqNum(1, 2), B.instantWin(BLUE));
+
+        Random random = new Random(42);
+        B = new MutableBoard(4);
+        while (B.getWinner() == null) {
+            Side p = B.whoseMove();
+            int critical = 0;
+            for (int n = 0; n < 16; n += 1) {
+                if (B.get(n).getSpots() == B.neighbors(n)) {
+                    critical += 1;
+                }
+                if (B.isLegal(p, n) && B.winsAt(p, n)) {
+                    Board next = new MutableBoard(B);
+                    next.addSpot(p, n);
+                    assertEquals(p, next.getWinner());
+                }
+            }
+            assertEquals(critical, B.numCritical());
+            assertEquals(critical, B.snapshot().numCritical());
+            int win = B.instantWin(p);
+            if (win >= 0) {
+                assertTrue(B.isLegal(p, win));
+                assertTrue(B.winsAt(p, win));
+            }
+            int sq = random.nextInt(16);
+            if (B.isLegal(p, sq)) {
+                B.addSpot(p, sq);
+            }
+        }
+    }
+
+    @Test
+    public void testPerft() {
+        Board B = new MutableBoard(3);
+        B.set(2, 2, 3, RED);
+        Perft.Count mutable =
+            new Perft(Perft.Implementation.MUTABLE).count(B, 4);
+        assertEquals(mutable,
+                     new Perft(Perft.Implementation.PERSISTENT).count(B, 4));
+        assertEquals(mutable,
+                     new Perft(Perft.Implementation.MUTABLE).count(B, 4, 2));
+        assertEquals(1, new Perft(Perft.Implementation.MUTABLE)
+                     .count(B, 0).leaves);
+        Perft.Count one = new Perft(Perft.Implementation.MUTABLE)
+            .count(new MutableBoard(3), 2);
+        assertEquals(72, one.leaves);
+        assertEquals(82, one.nodes);
+    }
+
     /** Checks that B conforms to the description given by CONTENTS.
      *  CONTENTS should be a sequence of groups of 4 items:
      *  r, c, n, s, where r and c are row and column number of a square of B,
@@ -45,62 +45,55 @@ class BoardWidget extends Pad {
      *  converts mouse clicks to commands to COMMANDWRITER. */
     BoardWidget(Game game, PrintWriter commandWriter) {
         _game = game;
-        _board = _bufferedBoard = game.getBoard();
+        _board = game.getPublishedBoard();
         _side = _board.size() * SQUARE_SEP + SEPARATOR_SIZE;
         setPreferredSize(_side, _side);
         setMouseHandler("click", this, "doClick");
         _commandOut = commandWriter;
-        if (!(_game.getPlayer(RED) instanceof AI)) {
-            playersTurn = true;
-        } else {
-            playersTurn = false;
-        }
     }
 
-    /* .update and .paintComponent are synchronized because they are called
-     *  by three different threads (the main thread, the thread that
-     *  responds to events, and the display thread.  We don't want the
-     *  saved copy of our Board to change while it is being displayed. */
+    /* Only the game's own thread changes its board.  This widget is used
+     * by that thread (through update) and by the event and display
+     * threads, which read only the immutable versions of the board that
+     * the game publishes.  None of them needs a lock, so painting never
+     * holds up the game, and mouse clicks reach the game as commands. */
 
     /** Update my display depending on any changes to my Board.  Here, we
-     *  save a copy of the current Board (so that we can deal with changes
-     *  to it only when we are ready for them), and resize the Widget if the
-     *  size of the Board should change. */
-    synchronized void update() {
-        Player currentPlayer = _game.getPlayer(_board.whoseMove());
-        if (currentPlayer instanceof AI && !playersTurn) {
-            currentPlayer.makeMove();
-            playersTurn = true;
-        }
-        _bufferedBoard = new MutableBoard(_board);
-        int side0 = _side;
-        _side = _board.size() * SQUARE_SEP + SEPARATOR_SIZE;
-        if (side0 != _side) {
+     *  take the latest published version of the game's board (which
+     *  will not change while it is being displayed), and resize the
+     *  Widget if the size of the Board should change. */
+    void update() {
+        _board = _game.getPublishedBoard();
+        int side = _board.size() * SQUARE_SEP + SEPARATOR_SIZE;
+        if (side != _side) {
+            _side = side;
             setPreferredSize(_side, _side);
         }
     }
 
     @Override
-    public synchronized void paintComponent(Graphics2D g) {
+    public void paintComponent(Graphics2D g) {
+        Board board = _board;
+        int side = board.size() * SQUARE_SEP + SEPARATOR_SIZE;
         g.setColor(SEPARATOR_COLOR);
-        for (int k = 0; k <= _side; k += SQUARE_SEP) {
-            g.fillRect(0, k, _side, SEPARATOR_SIZE);
-            g.fillRect(k, 0, SEPARATOR_SIZE, _side);
+        for (int k = 0; k <= side; k += SQUARE_SEP) {
+            g.fillRect(0, k, side, SEPARATOR_SIZE);
+            g.fillRect(k, 0, SEPARATOR_SIZE, side);
         }
-        for (int i = 1; i <= _board.size(); i++) {
-            for (int j = 1; j <= _board.size(); j++) {
-                displaySpots(g, i, j);
+        for (int i = 1; i <= board.size(); i++) {
+            for (int j = 1; j <= board.size(); j++) {
+                displaySpots(g, board, i, j);
             }
         }
     }
 
-    /** Fills a square at R and C with its appropriate color
+    /** Fills a square at R and C of BOARD with its appropriate color
      *  and displays it on G. */
-    private void fillSquareColor(Graphics2D g, int r, int c) {
-        int n = _board.sqNum(r, c), i = SQUARE_SEP;
-        if (_board.get(n).getSide() == WHITE) {
+    private void fillSquareColor(Graphics2D g, Board board, int r, int c) {
+        int n = board.sqNum(r, c), i = SQUARE_SEP;
+        if (board.get(n).getSide() == WHITE) {
             g.setColor(NEUTRAL);
-        } else if (_board.get(n).getSide() == RED) {
+        } else if (board.get(n).getSide() == RED) {
             g.setColor(RED_TINT);
         } else {
             g.setColor(BLUE_TINT);
@@ -111,10 +104,10 @@ class BoardWidget extends Pad {
     }
 
     /** Color and display the spots on the square at row R and column C
-     *  on G.  (Used by paintComponent). */
-    private void displaySpots(Graphics2D g, int r, int c) {
-        fillSquareColor(g, r, c);
-        switch (_board.get(_board.sqNum(r, c)).getSpots()) {
+     *  of BOARD on G.  (Used by paintComponent). */
+    private void displaySpots(Graphics2D g, Board board, int r, int c) {
+        fillSquareColor(g, board, r, c);
+        switch (board.get(board.sqNum(r, c)).getSpots()) {
         case 1:
             spot(g, CENTER_SPOT + SQUARE_SEP * (r - 1),
                     CENTER_SPOT + SQUARE_SEP * (c - 1));
@@ -152,48 +145,39 @@ class BoardWidget extends Pad {
         g.fillOval(x - SPOT_DIM / 2, y - SPOT_DIM / 2, SPOT_DIM, SPOT_DIM);
     }
 
-    /** Respond to the mouse click depicted by EVENT. */
+    /** Respond to the mouse click depicted by EVENT by sending the move
+     *  it denotes to the game, if it is a manual player's turn. */
     public void doClick(MouseEvent event) {
+        Board board = _board;
         int x = event.getX() - SEPARATOR_SIZE,
             y = event.getY() - SEPARATOR_SIZE;
         int r = 1;
         int c = 1;
-        for (; c <= _board.size(); c++) {
+        for (; c <= board.size(); c++) {
             if (y > SQUARE_SEP * (c - 1)
                     && y < SQUARE_SEP * c) {
                 break;
             }
         }
-        for (; r <= _board.size(); r++) {
+        for (; r <= board.size(); r++) {
             if (x > SQUARE_SEP * (r - 1)
                     && x < SQUARE_SEP * r) {
                 break;
             }
         }
-        if (!_game.gameInProgress()) {
-            return;
-        }
-        try {
-            if (!(_game.getPlayer(_board.whoseMove()) instanceof AI)
-                    && playersTurn) {
-                _game.makeMove(r, c);
-                if (_game.getPlayer(_board.whoseMove()) instanceof AI) {
-                    playersTurn = false;
-                }
-            }
-        } catch (AssertionError e) {
+        if (!_game.gameInProgress() || !board.exists(r, c)
+            || _game.getPlayer(board.whoseMove()) instanceof AI) {
             return;
         }
+        _commandOut.printf("%d %d%n", r, c);
+        _commandOut.flush();
     }
 
-    /** True if a human player is taking a turn. */
-    private boolean playersTurn;
     /** The Game I am playing. */
     private Game _game;
-    /** The Board I am displaying. */
-    private Board _board;
-    /** An internal snapshot of _board (to prevent race conditions). */
-    private Board _bufferedBoard;
+    /** The latest published version of my game's Board, which I am
+     *  displaying. */
+    private volatile Board _board;
     /** Dimension in pixels of one side of the board. */
     private int _side;
     /** Destination for commands derived from mouse clicks. */
@@ -40,6 +40,11 @@ class ConstantBoard extends Board {
         return _board.isLegal(player, r, c);
     }
 
+    @Override
+    boolean isLegal(Side player, int n) {
+        return _board.isLegal(player, n);
+    }
+
     @Override
     boolean isLegal(Side player) {
         return _board.isLegal(player);
@@ -50,6 +55,36 @@ class ConstantBoard extends Board {
         return _board.numOfSide(color);
     }
 
+    @Override
+    Features features() {
+        return _board.features();
+    }
+
+    @Override
+    CriticalIndex criticalIndex() {
+        return _board.criticalIndex();
+    }
+
+    @Override
+    PersistentBoard snapshot() {
+        return _board.snapshot();
+    }
+
+    @Override
+    long key() {
+        return _board.key();
+    }
+
+    @Override
+    long canonicalKey() {
+        return _board.canonicalKey();
+    }
+
+    @Override
+    int canonicalTransform() {
+        return _board.canonicalTransform();
+    }
+
     @Override
     public boolean equals(Object obj) {
         return _board.equals(obj);
@@ -0,0 +1,220 @@
+package jump61;
+
+import java.util.Arrays;
+
+import static jump61.Side.*;
+
+/** An index of the critical squares of a Board: those that hold as many
+ *  spots as they have neighbors, and so spill on their next spot.
+ *  Adjacent critical squares form components, which are found by
+ *  union-find.  A move to any critical square spills every square of its
+ *  component, whatever their sides, and so captures the component and
+ *  every square next to it, which together are its reach.  The cascade
+ *  may go further, since a square one spot short of critical that gains
+ *  two spots also spills, so a component's reach is only a lower bound
+ *  on what a move into it captures.  Still, a move whose reach covers
+ *  every square the mover does not already own surely wins at once.
+ *  The index answers such questions in time proportional to the number
+ *  of components, without simulating any move.  It is built in one pass
+ *  over a board, and does not change when the board does.
+ *  @author Randy Shi
+ */
+final class CriticalIndex {
+
+    /** The index of the critical squares of B. */
+    CriticalIndex(Board b) {
+        int area = b.size() * b.size();
+        _area = area;
+        _parent = new int[area];
+        _owned = new int[SIDES.length];
+        int white = -1, count = 0;
+        for (int n = 0; n < area; n += 1) {
+            Square sq = b.get(n);
+            _owned[sq.getSide().ordinal()] += 1;
+            if (sq.getSide() == WHITE) {
+                white = n;
+            }
+            if (sq.getSpots() == b.neighbors(n)) {
+                _parent[n] = n;
+                count += 1;
+            } else {
+                _parent[n] = -1;
+            }
+        }
+        for (int n = 0; n < area; n += 1) {
+            if (_parent[n] >= 0) {
+                for (int k = 0; k < 4; k += 1) {
+                    int m = Features.neighbor(b, n, k);
+                    if (m > n && _parent[m] >= 0) {
+                        union(n, m);
+                    }
+                }
+            }
+        }
+        _white = white;
+        _count = count;
+        _roots = new int[count];
+        _reach = new int[area];
+        _reachOwned = new int[SIDES.length][area];
+        _member = new int[SIDES.length][area];
+        int[] next = new int[area], first = new int[area];
+        Arrays.fill(first, -1);
+        int numComponents = 0;
+        for (int n = area - 1; n >= 0; n -= 1) {
+            if (_parent[n] >= 0) {
+                int root = find(n);
+                _parent[n] = root;
+                if (first[root] == -1) {
+                    _roots[numComponents] = root;
+                    numComponents += 1;
+                }
+                next[n] = first[root];
+                first[root] = n;
+            }
+        }
+        _numComponents = numComponents;
+        int[] marks = new int[area];
+        Arrays.fill(marks, -1);
+        for (int i = 0; i < _numComponents; i += 1) {
+            int root = _roots[i];
+            for (Side side : SIDES) {
+                _member[side.ordinal()][root] = -1;
+            }
+            for (int n = first[root]; n >= 0; n = next[n]) {
+                int side = b.get(n).getSide().ordinal();
+                if (_member[side][root] == -1) {
+                    _member[side][root] = n;
+                }
+                mark(b, n, root, marks);
+                for (int k = 0; k < 4; k += 1) {
+                    int m = Features.neighbor(b, n, k);
+                    if (m >= 0) {
+                        mark(b, m, root, marks);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the number of critical squares. */
+    int count() {
+        return _count;
+    }
+
+    /** Returns the number of components of critical squares. */
+    int numComponents() {
+        return _numComponents;
+    }
+
+    /** Returns true iff square #N is critical. */
+    boolean isCritical(int n) {
+        return _parent[n] >= 0;
+    }
+
+    /** Returns a square identifying the component of square #N, which is
+     *  the same for all squares of one component, or -1 if square #N is
+     *  not critical. */
+    int component(int n) {
+        return _parent[n];
+    }
+
+    /** Returns the number of squares that a move to square #N surely
+     *  captures or keeps: the reach of its component if it is critical,
+     *  and otherwise 1. */
+    int reach(int n) {
+        return _parent[n] < 0 ? 1 : _reach[_parent[n]];
+    }
+
+    /** Returns true iff a move by PLAYER to square #N, which must be
+     *  legal, surely wins at once. */
+    boolean winsAt(Side player, int n) {
+        if (_parent[n] >= 0) {
+            int root = _parent[n];
+            return _owned[player.ordinal()] + _reach[root]
+                - _reachOwned[player.ordinal()][root] == _area;
+        }
+        return n == _white && _owned[WHITE.ordinal()] == 1
+            && _owned[player.ordinal()] == _area - 1;
+    }
+
+    /** Returns a legal move for PLAYER that surely wins at once, or -1 if
+     *  the index shows none. */
+    int winningMove(Side player) {
+        int p = player.ordinal();
+        for (int i = 0; i < _numComponents; i += 1) {
+            int root = _roots[i];
+            if (_member[p][root] >= 0
+                && _owned[p] + _reach[root] - _reachOwned[p][root]
+                   == _area) {
+                return _member[p][root];
+            }
+        }
+        if (_white >= 0 && winsAt(player, _white)) {
+            return _white;
+        }
+        return -1;
+    }
+
+    /** Count square #N of B in the reach of the component whose root is
+     *  ROOT, unless MARKS shows it has already been counted. */
+    private void mark(Board b, int n, int root, int[] marks) {
+        if (marks[n] != root) {
+            marks[n] = root;
+            _reach[root] += 1;
+            _reachOwned[b.get(n).getSide().ordinal()][root] += 1;
+        }
+    }
+
+    /** Returns the root of the component of critical square #N,
+     *  compressing the path to it.  Used only while I am built; after
+     *  that, the parent of each critical square is its root. */
+    private int find(int n) {
+        int root = n;
+        while (_parent[root] != root) {
+            root = _parent[root];
+        }
+        while (_parent[n] != root) {
+            int next = _parent[n];
+            _parent[n] = root;
+            n = next;
+        }
+        return root;
+    }
+
+    /** Merge the components of critical squares #M and #N. */
+    private void union(int m, int n) {
+        int rm = find(m), rn = find(n);
+        if (rm != rn) {
+            _parent[Math.max(rm, rn)] = Math.min(rm, rn);
+        }
+    }
+
+    /** All Sides, indexed by ordinal. */
+    private static final Side[] SIDES = Side.values();
+
+    /** Number of squares on the board. */
+    private final int _area;
+    /** For each critical square, its parent in the union-find forest
+     *  (once I am built, the root of its component), and -1 for every
+     *  other square. */
+    private final int[] _parent;
+    /** Number of squares of each side, indexed by ordinal. */
+    private final int[] _owned;
+    /** A white square, or -1 if there is none. */
+    private final int _white;
+    /** Number of critical squares. */
+    private final int _count;
+    /** Number of components. */
+    private final int _numComponents;
+    /** The roots of the components. */
+    private final int[] _roots;
+    /** For each root, the size of its component's reach. */
+    private final int[] _reach;
+    /** For each side and root, the number of squares in the reach of the
+     *  root's component owned by that side. */
+    private final int[][] _reachOwned;
+    /** For each side and root, a square of the root's component owned by
+     *  that side, or -1 if there is none. */
+    private final int[][] _member;
+
+}
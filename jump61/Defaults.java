@@ -15,4 +15,40 @@ class Defaults {
     /** Maximum number of squares on the side of a game board. */
     static final int MAX_BOARD_SIZE = 10;
 
+    /** Number of plies searched by the AI, counting its own move. */
+    static final int SEARCH_DEPTH = 2;
+
+    /** Maximum number of plies of spills searched by the AI past
+     *  SEARCH_DEPTH before it evaluates a position statically. */
+    static final int QUIESCENCE_DEPTH = 4;
+
+    /** Maximum number of positions the AI visits past the full-width
+     *  search in one search to a fixed depth (one iteration of iterative
+     *  deepening).  Once used up, positions are evaluated statically. */
+    static final int QUIESCENCE_NODES = 2000;
+
+    /** Weights given by the AI's static evaluation to the difference
+     *  between its own and its opponent's counts of each feature, indexed
+     *  by the feature numbers defined in Features. */
+    static final int[] EVAL_WEIGHTS = { 10, 2, 6, 3, 1 };
+
+    /** Base-2 logarithm of the number of entries in an AI's
+     *  transposition table. */
+    static final int TABLE_LOG_SIZE = 16;
+
+    /** Base-2 logarithm of the number of entries in the table of an AI's
+     *  proof-number solver. */
+    static final int SOLVER_LOG_SIZE = 16;
+
+    /** Maximum number of positions the AI's proof-number solver visits
+     *  in trying to solve one position. */
+    static final int SOLVER_NODES = 2000;
+
+    /** The AI tries to solve a position outright when at least this
+     *  percentage of its squares are critical. */
+    static final int SOLVER_CRITICAL = 50;
+
+    /** Number of moves between keyframes of a game's history. */
+    static final int KEYFRAME_INTERVAL = 16;
+
 }
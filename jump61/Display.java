@@ -56,28 +56,28 @@ class Display extends TopLevel implements Observer {
 
     /** Response to "New Game" button click. */
     void start(String dummy) {
-        _game.clear();
-        _game.restartGame();
+        send("clear");
+        send("start");
     }
 
     /** Response to "Red Manual" button click. */
     void manualRed(String dummy) {
-        _game.setManual(RED);
+        send("manual red");
     }
 
     /** Response to "Red AI" button click. */
     void redAI(String dummy) {
-        _game.setAuto(RED);
+        send("auto red");
     }
 
     /** Response to "Blue Manual" button click. */
     void manualBlue(String dummy) {
-        _game.setManual(BLUE);
+        send("manual blue");
     }
 
     /** Response to "Blue AI" button click. */
     void blueAI(String dummy) {
-        _game.setAuto(BLUE);
+        send("auto blue");
     }
 
     /** Response to "Board Size..." button click. */
@@ -85,12 +85,21 @@ class Display extends TopLevel implements Observer {
         String size = getTextInput("Enter number of rows and columns (2--10)",
                 "Size", "question", "");
         try {
-            _game.setSize(Integer.parseInt(size));
+            send("size %d", Integer.parseInt(size));
         } catch (NumberFormatException e) {
             setSize(dummy);
         }
     }
 
+    /** Send the command formed from FORMAT and ARGS, as for printf, to my
+     *  game.  The game runs its commands on its own thread, which is the
+     *  only one that changes it. */
+    private void send(String format, Object... args) {
+        _commandOut.printf(format, args);
+        _commandOut.println();
+        _commandOut.flush();
+    }
+
     @Override
     public void update(Observable obs, Object obj) {
         _boardWidget.update();
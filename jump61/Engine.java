@@ -0,0 +1,235 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import static jump61.GameException.error;
+
+/** Plays Jump61 through a line-oriented protocol meant for programs,
+ *  such as tournament managers, rather than people.  Unlike Game, it
+ *  prints no prompts or messages, only the replies to its commands.
+ *  Its commands, one per line, are
+ *
+ *    position P     Set the position to P, in packed form: two
+ *                   hexadecimal digits per square, in order of square
+ *                   number, as given by GameRecordWriter.pack.  The side
+ *                   to move follows from the position.
+ *    go depth D     Search D plies.
+ *    go movetime T  Search for about T milliseconds.
+ *    go             Search Defaults.SEARCH_DEPTH plies.
+ *    stop           End the current search early.
+ *    isready        Reply "readyok".
+ *    quit           Stop.
+ *
+ *  Each go is answered by a line "info depth D score S nodes N time T"
+ *  and then a line "bestmove R C", or "bestmove none" if the game is
+ *  over.  Errors are reported by a line "error MESSAGE".  Searches run
+ *  on a thread of their own, so that stop can end them.  Any other
+ *  command waits for the current search to finish.
+ *  @author Randy Shi
+ */
+public class Engine {
+
+    /** Greatest depth of a timed search. */
+    static final int MAX_DEPTH = 32;
+
+    /** An engine reading commands from INPUT and writing replies to
+     *  OUTPUT.  The board is initially empty and of the default size. */
+    Engine(Reader input, Writer output) {
+        _in = new BufferedReader(input);
+        _out = new PrintWriter(output, true);
+        Game game = SelfPlay.newGame();
+        for (Side side : new Side[] { Side.RED, Side.BLUE }) {
+            _players[side.ordinal()] = new AI(game, side);
+        }
+    }
+
+    /** Read and execute commands until quit or the end of my input. */
+    void run() throws IOException {
+        for (String line = _in.readLine(); line != null;
+             line = _in.readLine()) {
+            String[] words = line.trim().split("\\s+");
+            if (words[0].isEmpty()) {
+                continue;
+            }
+            try {
+                if (!execute(words)) {
+                    break;
+                }
+            } catch (GameException | NumberFormatException excp) {
+                _out.printf("error %s%n", excp.getMessage());
+            }
+        }
+        stopSearch();
+        _out.flush();
+    }
+
+    /** Execute the command whose words are WORDS.  Returns false iff it
+     *  is quit. */
+    private boolean execute(String[] words) {
+        String command = words[0].toLowerCase();
+        if (command.equals("stop")) {
+            stopSearch();
+            return true;
+        } else if (command.equals("isready")) {
+            _out.println("readyok");
+            return true;
+        }
+        awaitSearch();
+        switch (command) {
+        case "position":
+            if (words.length != 2) {
+                throw error("usage: position PACKED");
+            }
+            unpack(words[1], _board);
+            break;
+        case "go":
+            if (words.length == 1) {
+                go(Defaults.SEARCH_DEPTH, -1);
+            } else if (words.length == 3 && words[1].equals("depth")) {
+                go(positive(words[2]), -1);
+            } else if (words.length == 3 && words[1].equals("movetime")) {
+                go(MAX_DEPTH, positive(words[2]));
+            } else {
+                throw error("usage: go [depth D | movetime T]");
+            }
+            break;
+        case "quit":
+            return false;
+        default:
+            throw error("unknown command: %s", words[0]);
+        }
+        return true;
+    }
+
+    /** Returns the positive integer denoted by WORD. */
+    private static int positive(String word) {
+        int value = Integer.parseInt(word);
+        if (value <= 0) {
+            throw error("expected a positive number: %s", word);
+        }
+        return value;
+    }
+
+    /** Start searching the current position to at most DEPTH plies, for
+     *  at most MILLIS milliseconds if MILLIS >= 0. */
+    private void go(int depth, long millis) {
+        if (_board.getWinner() != null) {
+            _out.println("bestmove none");
+            return;
+        }
+        AI ai = _players[_board.whoseMove().ordinal()];
+        Board board = new MutableBoard(_board);
+        ai.clearStop();
+        _searching = ai;
+        _search = new Thread(() -> {
+            int move = ai.search(board, depth, millis);
+            SearchStats stats = ai.stats();
+            _out.printf("info depth %d score %d nodes %d time %d%n",
+                        ai.searchDepth(), ai.rootValue(), stats.nodes(),
+                        stats.nanos() / NANOS_PER_MILLI);
+            _out.printf("bestmove %d %d%n", board.row(move),
+                        board.col(move));
+        });
+        _search.start();
+    }
+
+    /** Stop the current search, if any, and wait for its reply. */
+    private void stopSearch() {
+        if (_searching != null) {
+            _searching.stop();
+        }
+        awaitSearch();
+    }
+
+    /** Wait for the current search, if any, to finish. */
+    private void awaitSearch() {
+        if (_search == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (_search.isAlive()) {
+            try {
+                _search.join();
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        _search = null;
+        _searching = null;
+    }
+
+    /** Returns the packed form of B (see position). */
+    static String pack(Board b) {
+        StringBuilder packed = new StringBuilder();
+        for (int n = 0; n < b.size() * b.size(); n += 1) {
+            packed.append(String.format("%02x",
+                                        GameRecordWriter.pack(b.get(n))));
+        }
+        return packed.toString();
+    }
+
+    /** Set BOARD to the position whose packed form is PACKED.  Throws a
+     *  GameException, leaving BOARD unchanged, if PACKED is malformed or
+     *  describes an impossible position. */
+    static void unpack(String packed, MutableBoard board) {
+        int n = (int) Math.round(Math.sqrt(packed.length() / 2));
+        if (packed.length() != 2 * n * n || n < 2
+            || n > Defaults.MAX_BOARD_SIZE) {
+            throw error("bad packed position: %s", packed);
+        }
+        MutableBoard result = new MutableBoard(n);
+        for (int k = 0; k < n * n; k += 1) {
+            int code;
+            try {
+                code = Integer.parseInt(packed.substring(2 * k, 2 * k + 2),
+                                        HEX);
+            } catch (NumberFormatException excp) {
+                throw error("bad packed position: %s", packed);
+            }
+            int side = code >> 4, spots = code & 0xf;
+            if (side >= Side.values().length || spots < 1
+                || spots > result.neighbors(k)
+                || side == Side.WHITE.ordinal() && spots != 1) {
+                throw error("bad square %d in packed position", k);
+            }
+            Square sq = GameRecordWriter.unpack(code);
+            result.set(k, sq.getSpots(), sq.getSide());
+        }
+        board.copy(result);
+    }
+
+    /** Run an engine on the standard input and output. */
+    public static void main(String... unused) throws IOException {
+        new Engine(new InputStreamReader(System.in),
+                   new OutputStreamWriter(System.out)).run();
+    }
+
+    /** Radix of the digits of packed positions. */
+    private static final int HEX = 16;
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Source of commands. */
+    private final BufferedReader _in;
+    /** Destination of replies, shared with searches. */
+    private final PrintWriter _out;
+    /** The current position. */
+    private final MutableBoard _board = new MutableBoard(Defaults.BOARD_SIZE);
+    /** The AI players that search for each side, indexed by ordinal.
+     *  Each keeps its transposition table from search to search. */
+    private final AI[] _players = new AI[Side.values().length];
+    /** The thread of the current search, or null. */
+    private Thread _search;
+    /** The player doing the current search, or null. */
+    private AI _searching;
+
+}
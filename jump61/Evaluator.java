@@ -0,0 +1,17 @@
+package jump61;
+
+/** A heuristic judge of Jump61 positions, used by AI players to evaluate
+ *  the leaves of their searches and to choose among quiet moves.
+ *  @author Randy Shi
+ */
+interface Evaluator {
+
+    /** Returns the heuristic value of B, on which no one has won, for
+     *  player P.  Higher is better for P. */
+    int evaluate(Board b, Side p);
+
+    /** Returns how much P should prefer a quiet move to square #N of B
+     *  over other quiet moves.  Higher values are tried first. */
+    int preference(Board b, Side p, int n);
+
+}
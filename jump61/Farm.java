@@ -0,0 +1,355 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import ucb.util.CommandArgs;
+
+/** Coordinates a farm of worker processes (see FarmWorker) that play
+ *  self-play games, so that games can be spread over several JVMs, on
+ *  one machine or several.  Each game is a job, identified by its
+ *  number and fully determined by the board size and a seed, so the
+ *  results do not depend on which worker plays which game.  Workers
+ *  connect to the coordinator over TCP and speak a line protocol:
+ *
+ *    worker:       ready
+ *    coordinator:  job ID SIZE SEED      or      quit
+ *    worker:       result ID WINNER MOVES MILLIS
+ *
+ *  after which the coordinator sends the worker its next job or quit.
+ *  WINNER is r or b.  A worker that disconnects, or dies, without
+ *  returning a result has its job put back at the head of the queue for
+ *  another worker.  So does one that sends nothing for longer than a
+ *  timeout, well beyond the time a game takes, since a worker that hangs,
+ *  or a machine that vanishes from the network, may never close its
+ *  connection.
+ *  @author Randy Shi
+ */
+public class Farm implements Closeable {
+
+    /** A farm that plays GAMES games on N x N boards, with seeds chosen
+     *  using SEED, giving up on a worker that sends nothing for TIMEOUT
+     *  milliseconds. */
+    Farm(int games, int n, long seed, int timeout) {
+        _size = n;
+        _timeout = timeout;
+        _winners = new char[games];
+        _moves = new int[games];
+        Random seeds = new Random(seed);
+        for (int id = 0; id < games; id += 1) {
+            _pending.add(new long[] { id, seeds.nextLong() });
+        }
+    }
+
+    /** Accept workers on LISTENER, serving each on a thread of its own,
+     *  until LISTENER is closed. */
+    void listen(ServerSocket listener) throws IOException {
+        while (!listener.isClosed()) {
+            Socket socket;
+            try {
+                socket = listener.accept();
+            } catch (SocketException excp) {
+                if (listener.isClosed()) {
+                    break;
+                }
+                throw excp;
+            }
+            Thread handler = new Thread(() -> serve(socket));
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    /** Serve the worker connected through SOCKET until all games are
+     *  done, the worker disconnects, or it times out.  Puts back any job
+     *  it has not finished. */
+    private void serve(Socket socket) {
+        long[] job = null;
+        try (Socket s = socket) {
+            s.setSoTimeout(_timeout);
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(
+                    s.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out =
+                new PrintWriter(new OutputStreamWriter(
+                    s.getOutputStream(), StandardCharsets.UTF_8), true);
+            if (!"ready".equals(in.readLine())) {
+                return;
+            }
+            while (true) {
+                job = nextJob();
+                if (job == null) {
+                    out.println("quit");
+                    return;
+                }
+                out.printf("job %d %d %d%n", job[0], _size, job[1]);
+                String line = in.readLine();
+                if (line == null) {
+                    return;
+                }
+                record(job, line);
+                job = null;
+            }
+        } catch (IOException | RuntimeException excp) {
+            return;
+        } finally {
+            if (job != null) {
+                _pending.addFirst(job);
+                synchronized (this) {
+                    _reassigned += 1;
+                }
+            }
+        }
+    }
+
+    /** Returns the next job to hand out, waiting for one if all are
+     *  handed out but some are not done, or null if all are done. */
+    private long[] nextJob() {
+        while (!isDone()) {
+            try {
+                long[] job = _pending.poll(POLL_MILLIS,
+                                           TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    return job;
+                }
+            } catch (InterruptedException excp) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /** Record the result LINE of JOB.  Throws IllegalArgumentException if
+     *  LINE is malformed. */
+    private void record(long[] job, String line) {
+        String[] words = line.trim().split("\\s+");
+        if (words.length != 5 || !words[0].equals("result")
+            || Long.parseLong(words[1]) != job[0]
+            || !words[2].matches("[rb]")) {
+            throw new IllegalArgumentException("bad result: " + line);
+        }
+        int id = (int) job[0];
+        synchronized (this) {
+            if (_winners[id] == 0) {
+                _winners[id] = words[2].charAt(0);
+                _moves[id] = Integer.parseInt(words[3]);
+                _done += 1;
+                notifyAll();
+            }
+        }
+    }
+
+    /** Returns true iff all games are done. */
+    synchronized boolean isDone() {
+        return _done == _winners.length;
+    }
+
+    /** Wait until all games are done or MILLIS milliseconds have passed.
+     *  Returns true iff all games are done. */
+    synchronized boolean await(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (!isDone()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                return false;
+            }
+            wait(left);
+        }
+        return true;
+    }
+
+    /** Returns the number of games done. */
+    synchronized int done() {
+        return _done;
+    }
+
+    /** Returns the number of games won by SIDE. */
+    synchronized int wins(Side side) {
+        char c = side == Side.RED ? 'r' : 'b';
+        int wins = 0;
+        for (char winner : _winners) {
+            if (winner == c) {
+                wins += 1;
+            }
+        }
+        return wins;
+    }
+
+    /** Returns the total number of moves in the games done. */
+    synchronized long totalMoves() {
+        long total = 0;
+        for (int moves : _moves) {
+            total += moves;
+        }
+        return total;
+    }
+
+    /** Returns the number of jobs put back after their workers left
+     *  without finishing them. */
+    synchronized int reassigned() {
+        return _reassigned;
+    }
+
+    /** Write the result of each game done, one per line as ID WINNER
+     *  MOVES, to OUT. */
+    synchronized void writeResults(PrintWriter out) {
+        for (int id = 0; id < _winners.length; id += 1) {
+            if (_winners[id] != 0) {
+                out.printf("%d %c %d%n", id, _winners[id], _moves[id]);
+            }
+        }
+        out.flush();
+    }
+
+    /** Hand out no more jobs. */
+    @Override
+    public void close() {
+        _pending.clear();
+    }
+
+    /** Start a worker process that connects to PORT on this host, using
+     *  the same Java runtime and class path as this process. */
+    static Process startWorker(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator
+            + "bin" + File.separator + "java";
+        ProcessBuilder builder =
+            new ProcessBuilder(java, "-cp",
+                               System.getProperty("java.class.path"),
+                               FarmWorker.class.getName(),
+                               "--port=" + port);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /** Run a farm.  ARGS0 may contain --games=N, --size=N, --seed=N,
+     *  --port=N (port on which to accept workers from any host; without
+     *  it, workers are accepted only from this host, on any free port),
+     *  --workers=N (number of worker processes to start on this
+     *  host, which may be 0 if workers are started elsewhere; default
+     *  the number of processors), --timeout=S (seconds after which a
+     *  silent worker is given up on and its game handed to another),
+     *  and --out=FILE (file to which to write the result of each
+     *  game). */
+    public static void main(String[] args0) throws Exception {
+        CommandArgs args =
+            new CommandArgs("--games=(\\d+){0,1} --size=(\\d+){0,1} "
+                            + "--seed=(-?\\d+){0,1} --port=(\\d+){0,1} "
+                            + "--workers=(\\d+){0,1} --timeout=(\\d+){0,1} "
+                            + "--out=(.+){0,1}", args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Farm [--games=N] "
+                               + "[--size=N] [--seed=N] [--port=N] "
+                               + "[--workers=N] [--timeout=S] "
+                               + "[--out=FILE]");
+            System.exit(1);
+        }
+        int games = Tuner.intArg(args, "--games", DEFAULT_GAMES);
+        int workers = Tuner.intArg(args, "--workers",
+                                   Runtime.getRuntime()
+                                   .availableProcessors());
+        long seed = args.contains("--seed")
+            ? Long.parseLong(args.getFirst("--seed")) : 0;
+        InetAddress bind = args.contains("--port") ? null
+            : InetAddress.getLoopbackAddress();
+        List<Process> processes = new ArrayList<>();
+        int timeout = Tuner.intArg(args, "--timeout", DEFAULT_TIMEOUT)
+            * MILLIS_PER_SECOND;
+        try (Farm farm = new Farm(games,
+                                  Tuner.intArg(args, "--size", DEFAULT_SIZE),
+                                  seed, timeout);
+             ServerSocket listener =
+             new ServerSocket(Tuner.intArg(args, "--port", 0),
+                              Server.BACKLOG, bind)) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    farm.listen(listener);
+                } catch (IOException excp) {
+                    System.err.println(excp);
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            System.out.printf("coordinator on port %d%n",
+                              listener.getLocalPort());
+            for (int k = 0; k < workers; k += 1) {
+                processes.add(startWorker(listener.getLocalPort()));
+            }
+            long start = System.nanoTime();
+            while (!farm.await(REPORT_MILLIS)) {
+                System.out.printf("%d of %d games done%n", farm.done(),
+                                  games);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games in %.2f s (%.1f games/s): Red %d, "
+                              + "Blue %d, %.1f moves per game, %d "
+                              + "reassigned%n", games, seconds,
+                              games / seconds, farm.wins(Side.RED),
+                              farm.wins(Side.BLUE),
+                              (double) farm.totalMoves() / games,
+                              farm.reassigned());
+            if (args.contains("--out")) {
+                String name = args.getFirst("--out");
+                try (PrintWriter out = new PrintWriter(new FileWriter(name))) {
+                    farm.writeResults(out);
+                }
+            }
+        } finally {
+            for (Process process : processes) {
+                process.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                process.destroy();
+            }
+        }
+    }
+
+    /** Default number of games. */
+    private static final int DEFAULT_GAMES = 1000;
+    /** Default board size. */
+    private static final int DEFAULT_SIZE = 4;
+    /** Default time in seconds after which a silent worker is given up
+     *  on.  A game on a board of the default size takes well under a
+     *  second. */
+    private static final int DEFAULT_TIMEOUT = 60;
+    /** Milliseconds per second. */
+    private static final int MILLIS_PER_SECOND = 1000;
+    /** Time between checks by idle workers' handlers for new jobs or the
+     *  end of the farm, in milliseconds. */
+    private static final long POLL_MILLIS = 100;
+    /** Time between progress reports, in milliseconds. */
+    private static final long REPORT_MILLIS = 10000;
+
+    /** Board size of all games. */
+    private final int _size;
+    /** Time in milliseconds after which a silent worker is given up
+     *  on. */
+    private final int _timeout;
+    /** Jobs not yet handed out, or put back, each as {ID, SEED}. */
+    private final BlockingDeque<long[]> _pending =
+        new LinkedBlockingDeque<>();
+    /** Winner ('r' or 'b') of each game, by ID, or 0 if not done. */
+    private final char[] _winners;
+    /** Number of moves of each game done, by ID. */
+    private final int[] _moves;
+    /** Number of games done. */
+    private int _done;
+    /** Number of jobs put back. */
+    private int _reassigned;
+
+}
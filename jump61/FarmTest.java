@@ -0,0 +1,100 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of the self-play farm.
+ *  @author Randy Shi
+ */
+public class FarmTest {
+
+    /** Milliseconds after which the farms tested give up on a silent
+     *  worker. */
+    private static final int TIMEOUT = 1000;
+    /** Milliseconds to wait for a farm or a thread to finish. */
+    private static final long WAIT_MILLIS = 60000;
+
+    /** Start a thread running BODY, recording any IOException it throws
+     *  in ERROR, and return it. */
+    private Thread start(IOAction body, AtomicReference<IOException> error) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (IOException excp) {
+                error.compareAndSet(null, excp);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /** An action that may throw an IOException. */
+    private interface IOAction {
+        /** Perform the action. */
+        void run() throws IOException;
+    }
+
+    /** Returns a connection to PORT on HOST from a worker that announces
+     *  itself and takes a job, and then does nothing more. */
+    private Socket takeJob(InetAddress host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        new PrintWriter(socket.getOutputStream(), true).println("ready");
+        String job = new BufferedReader(new InputStreamReader(
+            socket.getInputStream())).readLine();
+        assertTrue(job, job.matches("job \\d+ 3 -?\\d+"));
+        return socket;
+    }
+
+    @Test
+    public void testFarm() throws Exception {
+        String results = null;
+        InetAddress host = InetAddress.getLoopbackAddress();
+        for (int workers = 1; workers <= 2; workers += 1) {
+            AtomicReference<IOException> error = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            try (Farm farm = new Farm(6, 3, 7, TIMEOUT);
+                 ServerSocket listener = new ServerSocket(0, 0, host)) {
+                threads.add(start(() -> farm.listen(listener), error));
+                int port = listener.getLocalPort();
+                takeJob(host, port).close();
+                Socket hung = takeJob(host, port);
+                try {
+                    for (int k = 0; k < workers; k += 1) {
+                        threads.add(start(() ->
+                                          new FarmWorker(host, port).run(),
+                                          error));
+                    }
+                    assertTrue(farm.await(WAIT_MILLIS));
+                } finally {
+                    hung.close();
+                }
+                assertEquals(2, farm.reassigned());
+                assertEquals(6, farm.wins(Side.RED) + farm.wins(Side.BLUE));
+                StringWriter output = new StringWriter();
+                farm.writeResults(new PrintWriter(output));
+                if (results != null) {
+                    assertEquals(results, output.toString());
+                }
+                results = output.toString();
+            }
+            for (Thread thread : threads) {
+                thread.join(WAIT_MILLIS);
+                assertFalse("thread did not finish", thread.isAlive());
+            }
+            assertNull(error.get());
+        }
+    }
+
+}
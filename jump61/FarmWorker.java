@@ -0,0 +1,91 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import ucb.util.CommandArgs;
+
+/** A worker of a Farm, which takes jobs from a coordinator, plays each
+ *  as a self-play game between AI players with the standard evaluator,
+ *  with no display or other output, and returns its result.  See Farm
+ *  for the protocol.
+ *  @author Randy Shi
+ */
+public class FarmWorker {
+
+    /** A worker for the coordinator at port PORT of HOST. */
+    FarmWorker(InetAddress host, int port) {
+        _host = host;
+        _port = port;
+    }
+
+    /** Connect to the coordinator and do jobs until it has no more.
+     *  Returns the number of jobs done. */
+    int run() throws IOException {
+        Evaluator evaluator = LinearEvaluator.standard();
+        int jobs = 0;
+        try (Socket socket = new Socket(_host, _port)) {
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out =
+                new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8),
+                                true);
+            out.println("ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                if (words[0].equals("quit")) {
+                    break;
+                } else if (!words[0].equals("job") || words.length != 4) {
+                    throw new IOException("bad job: " + line);
+                }
+                int n = Integer.parseInt(words[2]);
+                long start = System.nanoTime();
+                Game game = SelfPlay.playGame(n, evaluator, evaluator,
+                                              Long.parseLong(words[3]));
+                Board board = game.getBoard();
+                out.printf("result %s %c %d %d%n", words[1],
+                           board.getWinner() == Side.RED ? 'r' : 'b',
+                           board.numPieces() - n * n,
+                           (System.nanoTime() - start) / NANOS_PER_MILLI);
+                jobs += 1;
+            }
+        }
+        return jobs;
+    }
+
+    /** Run a worker.  ARGS0 contains --port=N, and may contain
+     *  --host=NAME (the coordinator's host; default this one). */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--host=(.+){0,1} --port=(\\d+)", args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.FarmWorker [--host=NAME] "
+                               + "--port=N");
+            System.exit(1);
+        }
+        InetAddress host = args.contains("--host")
+            ? InetAddress.getByName(args.getFirst("--host"))
+            : InetAddress.getLoopbackAddress();
+        int jobs = new FarmWorker(host, Integer.parseInt(args.getFirst(
+            "--port"))).run();
+        System.out.printf("%d jobs done%n", jobs);
+    }
+
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Host of the coordinator. */
+    private final InetAddress _host;
+    /** Port of the coordinator. */
+    private final int _port;
+
+}
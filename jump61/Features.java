@@ -0,0 +1,163 @@
+package jump61;
+
+import java.util.Arrays;
+
+import static jump61.Side.*;
+
+/** Counts of positional features of each side on a Board, used for
+ *  static evaluation.  A MutableBoard keeps its Features up to date as
+ *  its squares change, at a cost proportional to the number of changed
+ *  squares; other Boards compute them in one pass when asked.
+ *  @author Randy Shi
+ */
+class Features {
+
+    /** Feature: number of squares owned. */
+    static final int OWNED = 0;
+    /** Feature: number of owned squares that are full (have as many spots
+     *  as neighbors), and so spill on the next spot. */
+    static final int CRITICAL = 1;
+    /** Feature: number of owned squares next to an opponent's square
+     *  that need fewer spots to spill than every such neighbor. */
+    static final int ADVANTAGE = 2;
+    /** Feature: number of owned corner squares. */
+    static final int CORNERS = 3;
+    /** Feature: number of owned edge squares, not counting corners. */
+    static final int EDGES = 4;
+    /** The number of different features. */
+    static final int NUM_FEATURES = 5;
+
+    /** Features of an empty board. */
+    Features() {
+        _advantage = new byte[0];
+    }
+
+    /** Set me to the features of an initial N x N board. */
+    void clear(int n) {
+        for (int[] counts : _counts) {
+            Arrays.fill(counts, 0);
+        }
+        _counts[WHITE.ordinal()][OWNED] = n * n;
+        _advantage = new byte[n * n];
+    }
+
+    /** Set me to the features of B, computed in one pass. */
+    void compute(Board b) {
+        clear(b.size());
+        _counts[WHITE.ordinal()][OWNED] = 0;
+        for (int n = 0; n < _advantage.length; n += 1) {
+            add(b, n, b.get(n), 1);
+            updateAdvantage(b, n);
+        }
+    }
+
+    /** Set me to a copy of FEATURES. */
+    void copy(Features features) {
+        for (int s = 0; s < _counts.length; s += 1) {
+            System.arraycopy(features._counts[s], 0, _counts[s], 0,
+                             NUM_FEATURES);
+        }
+        _advantage = features._advantage.clone();
+    }
+
+    /** Returns the value of FEATURE for SIDE. */
+    int get(Side side, int feature) {
+        return _counts[side.ordinal()][feature];
+    }
+
+    /** Update me after square #N of B has changed from OLD to its current
+     *  contents. */
+    void update(Board b, int n, Square old) {
+        add(b, n, old, -1);
+        add(b, n, b.get(n), 1);
+        updateAdvantage(b, n);
+        for (int k = 0; k < 4; k += 1) {
+            int m = neighbor(b, n, k);
+            if (m >= 0) {
+                updateAdvantage(b, m);
+            }
+        }
+    }
+
+    /** Add INCR times the contribution of SQ, when in square #N of B, to
+     *  all my counts except ADVANTAGE. */
+    private void add(Board b, int n, Square sq, int incr) {
+        int[] counts = _counts[sq.getSide().ordinal()];
+        int neighbors = b.neighbors(n);
+        counts[OWNED] += incr;
+        if (sq.getSide() == WHITE) {
+            return;
+        }
+        if (sq.getSpots() == neighbors) {
+            counts[CRITICAL] += incr;
+        }
+        if (neighbors == 2) {
+            counts[CORNERS] += incr;
+        } else if (neighbors == 3) {
+            counts[EDGES] += incr;
+        }
+    }
+
+    /** Recompute whether square #N of B counts toward ADVANTAGE, and for
+     *  which side. */
+    private void updateAdvantage(Board b, int n) {
+        int now = hasAdvantage(b, n) ? b.get(n).getSide().ordinal() : 0;
+        int old = _advantage[n];
+        if (old != now) {
+            if (old != 0) {
+                _counts[old][ADVANTAGE] -= 1;
+            }
+            if (now != 0) {
+                _counts[now][ADVANTAGE] += 1;
+            }
+            _advantage[n] = (byte) now;
+        }
+    }
+
+    /** Returns true iff square #N of B is owned, is next to one of the
+     *  opponent's squares, and needs fewer spots to spill than any of
+     *  its neighbors owned by the opponent. */
+    static boolean hasAdvantage(Board b, int n) {
+        Side owner = b.get(n).getSide();
+        if (owner == WHITE) {
+            return false;
+        }
+        int need = b.neighbors(n) - b.get(n).getSpots();
+        boolean opponents = false;
+        for (int k = 0; k < 4; k += 1) {
+            int m = neighbor(b, n, k);
+            if (m >= 0 && b.get(m).getSide() == owner.opposite()) {
+                if (b.neighbors(m) - b.get(m).getSpots() <= need) {
+                    return false;
+                }
+                opponents = true;
+            }
+        }
+        return opponents;
+    }
+
+    /** Returns the number of the square above (K == 0), below (K == 1),
+     *  left of (K == 2), or right of (K == 3) square #N of B, or -1 if
+     *  there is no such square. */
+    static int neighbor(Board b, int n, int k) {
+        int size = b.size();
+        switch (k) {
+        case 0:
+            return n >= size ? n - size : -1;
+        case 1:
+            return n + size < size * size ? n + size : -1;
+        case 2:
+            return n % size > 0 ? n - 1 : -1;
+        default:
+            return n % size < size - 1 ? n + 1 : -1;
+        }
+    }
+
+    /** Counts of each feature, indexed by side and feature. */
+    private final int[][] _counts =
+        new int[Side.values().length][NUM_FEATURES];
+    /** For each square, the ordinal of the side for which it is counted
+     *  in ADVANTAGE, or 0 (WHITE) if it is not counted. */
+    private byte[] _advantage;
+
+}
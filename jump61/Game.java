@@ -1,14 +1,15 @@
 
 package jump61;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.io.PrintWriter;
 import java.util.InputMismatchException;
 import java.util.Scanner;
-import java.util.Random;
 import java.util.Observable;
 import java.util.UnknownFormatConversionException;
+import java.util.concurrent.ExecutorService;
 
 import static jump61.Side.*;
 import static jump61.GameException.error;
@@ -21,10 +22,25 @@ class Game extends Observable {
     /** Name of resource containing help message. */
     private static final String HELP = "jump61/Help.txt";
 
+    /** Matches a decimal number of seconds. */
+    private static final String SECONDS = "\\d+(\\.\\d*)?";
+    /** Milliseconds per second. */
+    private static final double MILLIS_PER_SECOND = 1000;
+
     /** A list of all commands. */
     private static final String[] COMMAND_NAMES = {
-        "auto", "clear", "dump", "help", "manual",
-        "quit", "seed", "set", "size", "start",
+        "auto", "clear", "clock", "dump", "help", "info", "load", "manual",
+        "ponder", "quit", "record", "save", "seed", "seek", "set", "size",
+        "solve", "start", "weights",
+    };
+
+    /** The commands of the first version of the game.  A prefix of
+     *  several command names that fits just one of these stands for it,
+     *  so that abbreviations such as 'c' for 'clear' keep their meaning
+     *  as commands are added. */
+    private static final String[] PREFERRED_NAMES = {
+        "auto", "clear", "dump", "help", "manual", "quit", "seed", "set",
+        "size", "start",
     };
 
     /** A new Game that takes command/move input from INPUT, prints
@@ -34,13 +50,16 @@ class Game extends Observable {
      *  closing them when its play method returns. */
     Game(Reader input, Writer prompts, Writer output, Writer errorOutput) {
         _exit = -1;
-        _board = new MutableBoard(Defaults.BOARD_SIZE);
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        board.startPublishing();
+        _board = board;
         _readonlyBoard = new ConstantBoard(_board);
         _prompter = new PrintWriter(prompts, true);
         _inp = new Scanner(input);
         _inp.useDelimiter("\\p{Blank}*(?=[\r\n])|(?<=\n)|\\p{Blank}+");
         _out = new PrintWriter(output, true);
         _err = new PrintWriter(errorOutput, true);
+        _history = new GameHistory(board, Defaults.KEYFRAME_INTERVAL);
     }
 
     /** Returns a readonly view of the game board.  This board remains valid
@@ -49,6 +68,15 @@ class Game extends Observable {
         return _readonlyBoard;
     }
 
+    /** Returns the latest complete version of the game board.  Only the
+     *  thread running play changes the board; unlike getBoard, this
+     *  method may be called from any other thread.  It never blocks, and
+     *  the board it returns never changes and never shows a move half
+     *  made. */
+    PersistentBoard getPublishedBoard() {
+        return ((MutableBoard) _board).published();
+    }
+
     /** Return true iff there is a game in progress. */
     boolean gameInProgress() {
         return _playing;
@@ -61,6 +89,7 @@ class Game extends Observable {
         _out.println("Welcome to " + Defaults.VERSION);
         _out.flush();
         _board.clear(Defaults.BOARD_SIZE);
+        resetHistory();
         setManual(RED);
         setAuto(BLUE);
         while (_exit < 0) {
@@ -85,6 +114,7 @@ class Game extends Observable {
             }
             _out.flush();
         }
+        record(null);
         _prompter.close();
         _out.close();
         _err.close();
@@ -96,7 +126,10 @@ class Game extends Observable {
      *  or ends first. */
     boolean getMove(int[] move) {
         while (_playing && _move[0] == 0) {
-            if (promptForNext()) {
+            startPondering();
+            boolean more = promptForNext();
+            stopPondering();
+            if (more) {
                 readExecuteCommand();
             } else {
                 _exit = 0;
@@ -113,16 +146,201 @@ class Game extends Observable {
         }
     }
 
+    /** If pondering is on and the player who moves after the current
+     *  one is an AI, start it searching the current position on a
+     *  thread of its own while the current player thinks. */
+    private void startPondering() {
+        Player next = getPlayer(_board.whoseMove().opposite());
+        if (!_ponder || !(next instanceof AI) || _board.getWinner() != null) {
+            return;
+        }
+        AI ai = (AI) next;
+        Board position = new MutableBoard(_board);
+        ai.clearStop();
+        _ponderer = ai;
+        _ponderThread = new Thread(() -> ai.ponder(position,
+                                                   Engine.MAX_DEPTH));
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /** Stop any search started by startPondering and wait for it to
+     *  end, so that its player may be used again on this thread.  The
+     *  search may already have ended by itself, without acting on the
+     *  stop, which must not then cut short the player's next search. */
+    private void stopPondering() {
+        if (_ponderThread == null) {
+            return;
+        }
+        _ponderer.stop();
+        boolean interrupted = false;
+        while (_ponderThread.isAlive()) {
+            try {
+                _ponderThread.join();
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        _ponderer.clearStop();
+        _ponderThread = null;
+        _ponderer = null;
+    }
+
     /** Add a spot to R C, if legal to do so. */
     void makeMove(int r, int c) {
         assert _board.isLegal(_board.whoseMove(), r, c);
-        _board.addSpot(_board.whoseMove(), _board.sqNum(r, c));
+        makeMove(_board.sqNum(r, c));
     }
 
     /** Add a spot to square #N, if legal to do so. */
     void makeMove(int n) {
         assert _board.isLegal(_board.whoseMove(), n);
+        _history.truncate(_ply);
         _board.addSpot(_board.whoseMove(), n);
+        _history.add(n, _board);
+        _ply += 1;
+        if (_recorder != null) {
+            try {
+                _recorder.move(n);
+            } catch (IOException excp) {
+                recordingFailed(excp);
+            }
+        }
+    }
+
+    /** Returns the moves made since the board was last set up (by
+     *  clear, size, set, or load), as square numbers.  After a seek,
+     *  these include the moves after the current board, until the next
+     *  move replaces them. */
+    int[] getHistory() {
+        return _history.moves();
+    }
+
+    /** Returns the board as it was before the first move of
+     *  getHistory(). */
+    Board getHistoryStart() {
+        MutableBoard start = new MutableBoard(_board.size());
+        _history.seek(0, start);
+        return start;
+    }
+
+    /** Returns the number of moves of getHistory() that lead to the
+     *  current board. */
+    int getPly() {
+        return _ply;
+    }
+
+    /** Forget the moves made so far, so that the history starts from the
+     *  current board. */
+    private void resetHistory() {
+        _history.reset(_board);
+        _ply = 0;
+    }
+
+    /** Stop any current game and set the board to the position after the
+     *  first PLY moves of getHistory(), keeping the rest, so that seeks
+     *  may go backward or forward.  A move made after a seek backward
+     *  replaces the moves that followed. */
+    void seek(int ply) {
+        _playing = false;
+        _history.seek(ply, (MutableBoard) _board);
+        _ply = ply;
+        announce();
+    }
+
+    /** Read the rest of a seek command and execute it: "seek N" goes to
+     *  the position after N moves, "seek +N" and "seek -N" go N moves
+     *  forward or back (stopping at either end), and "seek start" and
+     *  "seek end" go to the first and last positions. */
+    private void seek() {
+        String where = _inp.next("[-+]?\\d+|(?i)start|(?i)end");
+        int length = _history.length();
+        int ply;
+        if (where.equalsIgnoreCase("start")) {
+            ply = 0;
+        } else if (where.equalsIgnoreCase("end")) {
+            ply = length;
+        } else if (where.startsWith("+") || where.startsWith("-")) {
+            ply = Math.max(0, Math.min(length,
+                                       _ply + Integer.parseInt(where)));
+        } else {
+            ply = Integer.parseInt(where);
+        }
+        seek(ply);
+        message("Move %d of %d.%n", _ply, length);
+    }
+
+    /** Save the current board, side to move, player modes, random state,
+     *  and history to the file named FILENAME (see SavedGame). */
+    void save(String fileName) {
+        SavedGame saved =
+            new SavedGame(_board, _history, _ply,
+                          getPlayer(RED) instanceof AI,
+                          getPlayer(BLUE) instanceof AI, _seed,
+                          _random.state());
+        try {
+            saved.write(fileName);
+        } catch (IOException excp) {
+            reportError("cannot save game: %s", excp.getMessage());
+        }
+    }
+
+    /** Stop any current game and restore the state saved in the file
+     *  named FILENAME by save.  A game in progress when it was saved
+     *  continues after a start command, and seek moves through its
+     *  history. */
+    void load(String fileName) {
+        SavedGame saved;
+        try {
+            saved = SavedGame.read(fileName);
+        } catch (IOException excp) {
+            reportError("cannot load game: %s", excp.getMessage());
+            return;
+        }
+        _playing = false;
+        ((MutableBoard) _board).copy(saved.board());
+        _history = saved.history();
+        _ply = saved.ply();
+        for (Side side : new Side[] { RED, BLUE }) {
+            if (saved.isAI(side) && !(getPlayer(side) instanceof AI)) {
+                setAuto(side);
+            } else if (!saved.isAI(side)
+                       && !(getPlayer(side) instanceof HumanPlayer)) {
+                setManual(side);
+            }
+        }
+        _seed = saved.seed();
+        _random.setState(saved.randomState());
+        if (_clock != null) {
+            _clock.reset();
+        }
+        announce();
+    }
+
+    /** Append records of games started from now on to the file named
+     *  FILENAME, or stop recording games if FILENAME is null. */
+    void record(String fileName) {
+        try {
+            if (_recorder != null) {
+                _recorder.close();
+                _recorder = null;
+            }
+            if (fileName != null) {
+                _recorder = new GameRecordWriter(fileName);
+            }
+        } catch (IOException excp) {
+            recordingFailed(excp);
+        }
+    }
+
+    /** Report EXCP, an error writing my game records, and stop
+     *  recording. */
+    private void recordingFailed(IOException excp) {
+        _recorder = null;
+        reportError("cannot record games: %s", excp.getMessage());
     }
 
     /** Report a move by PLAYER to ROW COL. */
@@ -153,6 +371,19 @@ class Game extends Observable {
         if (thereIsWin) {
             announceWinner();
             _playing = false;
+            endRecord();
+        }
+    }
+
+    /** End the record of the current game, if I am recording. */
+    private void endRecord() {
+        if (_recorder != null) {
+            try {
+                _recorder.end();
+                _recorder.flush();
+            } catch (IOException excp) {
+                recordingFailed(excp);
+            }
         }
     }
 
@@ -162,6 +393,50 @@ class Game extends Observable {
         _out.flush();
     }
 
+    /** Returns true iff AI players should report statistics of their
+     *  searches. */
+    boolean showInfo() {
+        return _info;
+    }
+
+    /** Returns the Evaluator used by my AI players. */
+    Evaluator getEvaluator() {
+        return _evaluator;
+    }
+
+    /** Have my AI players compute their moves on POOL, which may be
+     *  shared with other Games, or, if POOL is null, on the thread
+     *  running play. */
+    void setComputePool(ExecutorService pool) {
+        _computePool = pool;
+    }
+
+    /** Returns the pool on which my AI players compute their moves, or
+     *  null if they compute them on the thread running play. */
+    ExecutorService getComputePool() {
+        return _computePool;
+    }
+
+    /** Make my AI players, current and future, use EVALUATOR. */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+        for (Player player : _players) {
+            if (player instanceof AI) {
+                ((AI) player).setEvaluator(evaluator);
+            }
+        }
+    }
+
+    /** Make my AI players use the evaluation weights in the file named
+     *  FILENAME, or the standard weights if FILENAME is null. */
+    void loadWeights(String fileName) {
+        if (fileName == null) {
+            setEvaluator(LinearEvaluator.standard());
+        } else {
+            setEvaluator(LinearEvaluator.read(fileName));
+        }
+    }
+
     /** Make the player of COLOR an AI for subsequent moves. */
     void setAuto(Side color) {
         _playing = false;
@@ -189,7 +464,65 @@ class Game extends Observable {
      *  state. */
     void clear() {
         _board.clear(_board._size);
+        resetHistory();
         _playing = false;
+        if (_clock != null) {
+            _clock.reset();
+        }
+    }
+
+    /** Read the rest of a clock command and execute it: "clock off"
+     *  removes the clock, "clock S [I]" gives each side S seconds and
+     *  an increment of I (default 0) seconds per move, and "clock" alone
+     *  reports the time left to each side. */
+    private void setClock() {
+        if (_inp.hasNext("(?i)off")) {
+            _inp.next();
+            _clock = null;
+        } else if (_inp.hasNext(SECONDS)) {
+            long base = toMillis(_inp.next(SECONDS));
+            long increment =
+                _inp.hasNext(SECONDS) ? toMillis(_inp.next(SECONDS)) : 0;
+            _clock = new TimeManager(base, increment);
+        } else if (_clock == null) {
+            message("No clock.%n");
+        } else {
+            message("%s.%n", _clock);
+        }
+    }
+
+    /** Returns the number of milliseconds in SECONDS, a decimal number
+     *  of seconds. */
+    private static long toMillis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * MILLIS_PER_SECOND);
+    }
+
+    /** Returns my game clock, or null if I have none. */
+    TimeManager getClock() {
+        return _clock;
+    }
+
+    /** Try to prove who wins the current position, visiting at most
+     *  about NODES positions, and report the result and the number of
+     *  positions visited. */
+    private void solve(int nodes) {
+        Solver solver = new Solver(Defaults.SOLVER_LOG_SIZE);
+        Side player = _board.whoseMove();
+        switch (solver.solve(_board, nodes)) {
+        case Solver.PROVEN:
+            message("%s wins with %d %d (%d nodes).%n",
+                    player.toCapitalizedString(),
+                    _board.row(solver.move()), _board.col(solver.move()),
+                    solver.nodes());
+            break;
+        case Solver.DISPROVEN:
+            message("%s loses (%d nodes).%n", player.toCapitalizedString(),
+                    solver.nodes());
+            break;
+        default:
+            message("Unknown after %d nodes.%n", solver.nodes());
+            break;
+        }
     }
 
     /** Print the current board using standard board-dump format. */
@@ -209,7 +542,8 @@ class Game extends Observable {
     }
 
     /** Seed the random-number generator with SEED. */
-    private void setSeed(long seed) {
+    void setSeed(long seed) {
+        _seed = seed;
         _random.setSeed(seed);
     }
 
@@ -239,9 +573,11 @@ class Game extends Observable {
         }
         if (spots == 0) {
             _board.set(r, c, 1, WHITE);
+            resetHistory();
             return;
         }
         _board.set(r, c, spots, side);
+        resetHistory();
         _playing = false;
     }
 
@@ -253,7 +589,11 @@ class Game extends Observable {
             return;
         }
         ((MutableBoard) _board).initializeBoard(n);
+        resetHistory();
         _playing = false;
+        if (_clock != null) {
+            _clock.reset();
+        }
         announce();
     }
 
@@ -261,29 +601,58 @@ class Game extends Observable {
      *  immediately print a win message and end the game. */
     void restartGame() {
         _playing = true;
+        if (_recorder != null) {
+            try {
+                _recorder.begin(_board, _seed,
+                                getPlayer(RED) instanceof AI,
+                                getPlayer(BLUE) instanceof AI);
+            } catch (IOException excp) {
+                recordingFailed(excp);
+            }
+        }
         checkForWin();
         announce();
     }
 
-    /** Plays the game. */
+    /** Plays the game, charging each side's turns to its clock, if
+     *  there is one, and ending the game if a side runs out of time. */
     private void playGame() {
         checkForWin();
-        Player player;
-        switch (_board.whoseMove()) {
-        case RED:
-            player = getPlayer(RED);
-            player.makeMove();
-            break;
-        case BLUE:
-            player = getPlayer(BLUE);
-            player.makeMove();
-            break;
-        default:
-            break;
+        if (!gameInProgress()) {
+            return;
+        }
+        Side side = _board.whoseMove();
+        int pieces = _board.numPieces();
+        if (_clock != null) {
+            _clock.start(side);
+        }
+        getPlayer(side).makeMove();
+        if (_clock != null
+            && !_clock.stop(side, _board.numPieces() != pieces)) {
+            _out.printf("%s loses on time.%n", side.toCapitalizedString());
+            _out.flush();
+            _playing = false;
+            endRecord();
+            return;
         }
         checkForWin();
     }
 
+    /** Play the game in progress, or start one from the current position,
+     *  until someone wins or my input ends, without reading commands
+     *  other than moves for manual players.  Returns the winner, or null
+     *  if there is none.  Intended for driving games between AI players
+     *  directly, without the overhead of the command interface. */
+    Side playToEnd() {
+        if (!gameInProgress()) {
+            restartGame();
+        }
+        while (gameInProgress() && _exit < 0) {
+            playGame();
+        }
+        return _board.getWinner();
+    }
+
     /** Save move R C in _move.  Error if R and C do not indicate an
      *  existing square on the current board. */
     private void saveMove(int r, int c) {
@@ -328,8 +697,9 @@ class Game extends Observable {
 
     /** Return the full, lower-case command name that uniquely fits
      *  COMMAND.  COMMAND may be any prefix of a valid command name,
-     *  as long as that name is unique.  If the name is not unique or
-     *  no command name matches, returns COMMAND in lower case. */
+     *  as long as that name is unique, or is the only one of
+     *  PREFERRED_NAMES that it fits.  If no command name matches,
+     *  returns COMMAND in lower case. */
     private String canonicalizeCommand(String command) {
         command = command.toLowerCase();
 
@@ -345,8 +715,7 @@ class Game extends Observable {
             }
             if (name.startsWith(command)) {
                 if (fullName != null) {
-                    throw error("%s is not a unique command abbreviation",
-                                command);
+                    return preferredCommand(command);
                 }
                 fullName = name;
             }
@@ -358,6 +727,26 @@ class Game extends Observable {
         }
     }
 
+    /** Return the one name in PREFERRED_NAMES that starts with COMMAND,
+     *  a prefix of more than one command name.  Throws a GameException
+     *  if there is not exactly one. */
+    private String preferredCommand(String command) {
+        String fullName = null;
+        for (String name : PREFERRED_NAMES) {
+            if (name.startsWith(command)) {
+                if (fullName != null) {
+                    fullName = null;
+                    break;
+                }
+                fullName = name;
+            }
+        }
+        if (fullName == null) {
+            throw error("%s is not a unique command abbreviation", command);
+        }
+        return fullName;
+    }
+
     /** Gather arguments and execute command CMND.  Throws GameException
      *  on errors. */
     private void executeCommand(String cmnd) {
@@ -372,12 +761,24 @@ class Game extends Observable {
         case "clear":
             clear();
             break;
+        case "clock":
+            setClock();
+            break;
         case "dump":
             dump();
             break;
         case "help":
             help();
             break;
+        case "info":
+            _info = _inp.next("(?i)on|off").equalsIgnoreCase("on");
+            break;
+        case "ponder":
+            _ponder = _inp.next("(?i)on|off").equalsIgnoreCase("on");
+            break;
+        case "load":
+            load(_inp.next());
+            break;
         case "manual":
             setManual(readSide());
             break;
@@ -385,6 +786,15 @@ class Game extends Observable {
             _exit = 0;
             _playing = false;
             break;
+        case "record":
+            record(_inp.hasNext("\\S+") ? _inp.next() : null);
+            break;
+        case "save":
+            save(_inp.next());
+            break;
+        case "seek":
+            seek();
+            break;
         case "seed":
             setSeed(_inp.nextLong());
             break;
@@ -395,9 +805,16 @@ class Game extends Observable {
         case "size":
             setSize(_inp.nextInt());
             break;
+        case "solve":
+            solve(_inp.hasNext("\\d+") ? _inp.nextInt()
+                  : Defaults.SOLVER_NODES);
+            break;
         case "start":
             restartGame();
             break;
+        case "weights":
+            loadWeights(_inp.hasNext("\\S+") ? _inp.next() : null);
+            break;
         default:
             throw error("bad command: '%s'", cmnd);
         }
@@ -446,11 +863,38 @@ class Game extends Observable {
     /** A readonly view of _board. */
     private final Board _readonlyBoard;
 
-    /** A pseudo-random number generator used by players as needed. */
-    private final Random _random = new Random();
+    /** Judge of positions used by my AI players. */
+    private Evaluator _evaluator = LinearEvaluator.standard();
 
-    /** True iff a game is currently in progress. */
-    private boolean _playing;
+    /** A pseudo-random number generator used by players as needed. */
+    private final StatefulRandom _random = new StatefulRandom();
+    /** The last seed given to _random, or 0 if none. */
+    private long _seed;
+    /** The moves made since the board was last set up. */
+    private GameHistory _history;
+    /** Number of moves of _history that lead to the current board. */
+    private int _ply;
+
+    /** Destination of records of my games, or null if they are not
+     *  being recorded. */
+    private GameRecordWriter _recorder;
+
+    /** True iff AI players report statistics of their searches. */
+    private boolean _info;
+    /** The game clock, or null if games are untimed. */
+    private TimeManager _clock;
+    /** True iff AI players search while their opponents think. */
+    private boolean _ponder;
+    /** The AI player now pondering, or null. */
+    private AI _ponderer;
+    /** The thread on which _ponderer is pondering, or null. */
+    private Thread _ponderThread;
+    /** Pool on which AI players compute their moves, or null. */
+    private ExecutorService _computePool;
+
+    /** True iff a game is currently in progress.  Volatile, since the GUI
+     *  reads it from its own thread. */
+    private volatile boolean _playing;
     /** When set to a non-negative value, indicates that play should terminate
      *  at the earliest possible point, returning _exit.  When negative,
      *  indicates that the session is not over. */
@@ -0,0 +1,185 @@
+package jump61;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static jump61.GameException.error;
+
+/** The moves of a game from some starting board, with keyframes that
+ *  make any position of the game quick to reach.  A keyframe is a full
+ *  copy of the board, in packed squares (see GameRecordWriter.pack),
+ *  kept after every interval() moves, starting with the starting board
+ *  itself, so that keyframe #J is the board after J * interval() moves.
+ *  The keyframes are indexed by their number, and the moves between two
+ *  keyframes are the deltas from the first to the second.  Reaching the
+ *  position after any number of moves costs one copy of a keyframe and
+ *  fewer than interval() moves.
+ *  @author Randy Shi
+ */
+class GameHistory {
+
+    /** A history with no moves, starting from START, with a keyframe
+     *  every INTERVAL moves. */
+    GameHistory(Board start, int interval) {
+        _interval = interval;
+        reset(start);
+    }
+
+    /** Forget all moves and keyframes, and start again from START. */
+    void reset(Board start) {
+        _size = start.size();
+        _numMoves = 0;
+        _numKeyframes = 0;
+        addKeyframe(start);
+    }
+
+    /** Returns the number of moves between keyframes. */
+    int interval() {
+        return _interval;
+    }
+
+    /** Returns the board size. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns the number of moves. */
+    int length() {
+        return _numMoves;
+    }
+
+    /** Returns the number of keyframes. */
+    int numKeyframes() {
+        return _numKeyframes;
+    }
+
+    /** Returns move #K (numbering from 0), as a square number. */
+    int move(int k) {
+        return _moves[k];
+    }
+
+    /** Returns the moves, as square numbers. */
+    int[] moves() {
+        return Arrays.copyOf(_moves, _numMoves);
+    }
+
+    /** Add a move to square #N, after which the board is AFTER. */
+    void add(int n, Board after) {
+        if (_numMoves == _moves.length) {
+            _moves = Arrays.copyOf(_moves, 2 * _moves.length);
+        }
+        _moves[_numMoves] = n;
+        _numMoves += 1;
+        if (_numMoves % _interval == 0) {
+            addKeyframe(after);
+        }
+    }
+
+    /** Forget all moves after the first PLY. */
+    void truncate(int ply) {
+        if (ply < _numMoves) {
+            _numMoves = ply;
+            _numKeyframes = ply / _interval + 1;
+        }
+    }
+
+    /** Set BOARD to the position after the first PLY moves, where 0 <=
+     *  PLY <= length().  Returns the number of moves replayed after
+     *  copying a keyframe, which is less than interval(). */
+    int seek(int ply, MutableBoard board) {
+        if (ply < 0 || ply > _numMoves) {
+            throw error("no position %d in a game of %d moves", ply,
+                        _numMoves);
+        }
+        int keyframe = ply / _interval;
+        MutableBoard result = new MutableBoard(_size);
+        int offset = keyframe * _size * _size;
+        for (int n = 0; n < _size * _size; n += 1) {
+            Square sq =
+                GameRecordWriter.unpack(_keyframes[offset + n] & 0xff);
+            if (result.get(n) != sq) {
+                result.set(n, sq.getSpots(), sq.getSide());
+            }
+        }
+        for (int k = keyframe * _interval; k < ply; k += 1) {
+            result.addSpot(result.whoseMove(), _moves[k]);
+        }
+        board.copy(result);
+        return ply - keyframe * _interval;
+    }
+
+    /** Put my keyframes and then my moves into BUFFER: numKeyframes()
+     *  keyframes of size() * size() packed squares each, followed by
+     *  length() moves of one byte each. */
+    void write(ByteBuffer buffer) {
+        buffer.put(_keyframes, 0, _numKeyframes * _size * _size);
+        for (int k = 0; k < _numMoves; k += 1) {
+            buffer.put((byte) _moves[k]);
+        }
+    }
+
+    /** Returns the history of NUMMOVES moves on SIZE x SIZE boards with a
+     *  keyframe every INTERVAL moves read from BUFFER, in the form
+     *  written by write.  Throws a GameException, mentioning FILENAME,
+     *  if the keyframes are not possible boards or the moves are not
+     *  squares. */
+    static GameHistory read(ByteBuffer buffer, int size, int interval,
+                            int numMoves, String fileName) {
+        Board empty = new MutableBoard(size);
+        GameHistory history = new GameHistory(empty, interval);
+        int area = size * size;
+        history._numKeyframes = numMoves / interval + 1;
+        history._keyframes = new byte[history._numKeyframes * area];
+        buffer.get(history._keyframes);
+        for (int i = 0; i < history._keyframes.length; i += 1) {
+            int code = history._keyframes[i] & 0xff;
+            int side = code >> 4, spots = code & 0xf;
+            if (side >= Side.values().length || spots < 1
+                || spots > empty.neighbors(i % area)
+                || side == Side.WHITE.ordinal() && spots != 1) {
+                throw error("%s is corrupt", fileName);
+            }
+        }
+        history._moves = new int[Math.max(INITIAL_MOVES, numMoves)];
+        for (int k = 0; k < numMoves; k += 1) {
+            history._moves[k] = buffer.get() & 0xff;
+            if (history._moves[k] >= area) {
+                throw error("%s is corrupt", fileName);
+            }
+        }
+        history._numMoves = numMoves;
+        return history;
+    }
+
+    /** Add B as the next keyframe. */
+    private void addKeyframe(Board b) {
+        int area = _size * _size;
+        int offset = _numKeyframes * area;
+        if (offset + area > _keyframes.length) {
+            _keyframes = Arrays.copyOf(_keyframes,
+                                       Math.max(2 * _keyframes.length,
+                                                offset + area));
+        }
+        for (int n = 0; n < area; n += 1) {
+            _keyframes[offset + n] = (byte) GameRecordWriter.pack(b.get(n));
+        }
+        _numKeyframes += 1;
+    }
+
+    /** Initial capacity for moves. */
+    private static final int INITIAL_MOVES = 64;
+
+    /** Number of moves between keyframes. */
+    private final int _interval;
+    /** Board size. */
+    private int _size;
+    /** The moves, as square numbers, in _moves[0 .. _numMoves - 1]. */
+    private int[] _moves = new int[INITIAL_MOVES];
+    /** Number of moves. */
+    private int _numMoves;
+    /** The keyframes, one after another, in packed squares. */
+    private byte[] _keyframes = new byte[0];
+    /** Number of keyframes. */
+    private int _numKeyframes;
+
+}
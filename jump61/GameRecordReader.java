@@ -0,0 +1,194 @@
+package jump61;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static jump61.Side.*;
+
+/** Reads files of game records written by GameRecordWriter, one record at
+ *  a time, replaying their moves directly onto a MutableBoard.  Input is
+ *  read through a FileChannel into one reusable buffer, and decoding
+ *  creates no objects per move or per record.
+ *  @author Randy Shi
+ */
+public class GameRecordReader implements Closeable {
+
+    /** Size of the input buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** A reader of the records in the file named FILENAME. */
+    GameRecordReader(String fileName) throws IOException {
+        _in = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        _buffer.flip();
+    }
+
+    /** Advance to the next record, skipping any unread moves of the
+     *  current one, and read its header.  Returns false if there are no
+     *  more records. */
+    boolean next() throws IOException {
+        while (_inRecord) {
+            nextMove();
+        }
+        int tag = read();
+        if (tag < 0) {
+            return false;
+        }
+        if (tag != GameRecordWriter.RECORD_TAG
+            || readByte() != GameRecordWriter.VERSION) {
+            throw new IOException("bad game record");
+        }
+        _size = readByte();
+        _seed = 0;
+        for (int k = 0; k < Long.BYTES; k += 1) {
+            _seed = (_seed << Byte.SIZE) | readByte();
+        }
+        _players = readByte();
+        _setup = readByte() != 0;
+        if (_setup) {
+            for (int n = 0; n < _size * _size; n += 1) {
+                _squares[n] = (byte) readByte();
+            }
+        }
+        _inRecord = true;
+        return true;
+    }
+
+    /** Returns the board size of the current record. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns the random seed of the current record. */
+    long seed() {
+        return _seed;
+    }
+
+    /** Returns true iff PLAYER was an AI in the current record. */
+    boolean isAI(Side player) {
+        return (_players & (player == RED ? 1 : 2)) != 0;
+    }
+
+    /** Set BOARD to the starting position of the current record. */
+    void start(MutableBoard board) {
+        if (board.size() != _size) {
+            board.initializeBoard(_size);
+        }
+        for (int n = 0; n < _size * _size; n += 1) {
+            Square sq = _setup ? GameRecordWriter.unpack(_squares[n])
+                : Square.INITIAL;
+            if (board.get(n) != sq) {
+                board.set(n, sq.getSpots(), sq.getSide());
+            }
+        }
+    }
+
+    /** Returns the next move (a square number) of the current record, or
+     *  -1 if there are no more. */
+    int nextMove() throws IOException {
+        if (!_inRecord) {
+            return -1;
+        }
+        int x = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+            x |= (b & 0x7f) << shift;
+            if (b < 0x80) {
+                break;
+            }
+        }
+        if (x == 0) {
+            _inRecord = false;
+        }
+        return x - 1;
+    }
+
+    /** Set BOARD to the starting position of the current record and make
+     *  all of its moves.  Returns the number of moves made. */
+    int replay(MutableBoard board) throws IOException {
+        start(board);
+        int count;
+        for (count = 0; ; count += 1) {
+            int move = nextMove();
+            if (move < 0) {
+                return count;
+            }
+            board.addSpot(board.whoseMove(), move);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    /** Returns the next byte of input, or -1 at the end of the input. */
+    private int read() throws IOException {
+        if (!_buffer.hasRemaining()) {
+            _buffer.clear();
+            int n = _in.read(_buffer);
+            _buffer.flip();
+            if (n <= 0) {
+                return -1;
+            }
+        }
+        return _buffer.get() & 0xff;
+    }
+
+    /** Returns the next byte of input, which must exist. */
+    private int readByte() throws IOException {
+        int b = read();
+        if (b < 0) {
+            throw new EOFException("truncated game record");
+        }
+        return b;
+    }
+
+    /** Replay all records in the files named in ARGS, and report the
+     *  number of games and moves, the winners, and the rate. */
+    public static void main(String[] args) throws IOException {
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        long games, moves, start = System.nanoTime();
+        int[] wins = new int[Side.values().length];
+        games = moves = 0;
+        for (String name : args) {
+            try (GameRecordReader records = new GameRecordReader(name)) {
+                while (records.next()) {
+                    moves += records.replay(board);
+                    games += 1;
+                    Side winner = board.getWinner();
+                    wins[winner == null ? 0 : winner.ordinal()] += 1;
+                }
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves: red %d, blue %d, "
+                          + "unfinished %d; %.0f games/s%n", games, moves,
+                          wins[RED.ordinal()], wins[BLUE.ordinal()],
+                          wins[WHITE.ordinal()], games / secs);
+    }
+
+    /** Source of records. */
+    private final FileChannel _in;
+    /** Buffered input from _in. */
+    private final ByteBuffer _buffer;
+    /** True iff the current record has unread moves. */
+    private boolean _inRecord;
+    /** Board size of the current record. */
+    private int _size;
+    /** Random seed of the current record. */
+    private long _seed;
+    /** Player bits of the current record. */
+    private int _players;
+    /** True iff the current record starts from a set-up position. */
+    private boolean _setup;
+    /** Packed squares of the set-up position of the current record. */
+    private final byte[] _squares =
+        new byte[Defaults.MAX_BOARD_SIZE * Defaults.MAX_BOARD_SIZE];
+
+}
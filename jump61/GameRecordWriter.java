@@ -0,0 +1,125 @@
+package jump61;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static jump61.Side.*;
+
+/** Appends compact binary records of games to a file.  A file is a
+ *  sequence of records, each of which has the form
+ *  <pre>
+ *     RECORD_TAG  VERSION  size  seed(8 bytes)  players  setup
+ *     [size*size packed squares, if setup is 1]
+ *     move+1 ... move+1  0
+ *  </pre>
+ *  where players has bit 0 set iff red is an AI and bit 1 set iff blue
+ *  is, setup is 0 for a game starting from the initial board and 1 for
+ *  one starting from the packed squares that follow, and each move is a
+ *  square number written (plus 1) as an unsigned varint: 7 bits per byte,
+ *  low-order first, with the high bit set on all but the last byte.  The
+ *  0 after the last move ends the record.  A packed square has the
+ *  ordinal of its color in its upper 4 bits and its spots in the lower 4.
+ *  GameRecordReader reads these files.
+ *  @author Randy Shi
+ */
+class GameRecordWriter implements Closeable {
+
+    /** All Sides, indexed by ordinal. */
+    private static final Side[] SIDES = Side.values();
+
+    /** First byte of each record. */
+    static final int RECORD_TAG = 0x61;
+    /** Format version. */
+    static final int VERSION = 1;
+    /** Size of the output buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** A writer that appends records to the file named FILENAME. */
+    GameRecordWriter(String fileName) throws IOException {
+        this(new FileOutputStream(fileName, true));
+    }
+
+    /** A writer that writes records to OUT. */
+    GameRecordWriter(OutputStream out) {
+        _out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    /** Start a record of a game starting from BOARD, ending any record in
+     *  progress.  SEED is the random seed in effect, and REDAI and BLUEAI
+     *  are true iff the respective players are AIs. */
+    void begin(Board board, long seed, boolean redAI, boolean blueAI)
+        throws IOException {
+        end();
+        int size = board.size();
+        _out.write(RECORD_TAG);
+        _out.write(VERSION);
+        _out.write(size);
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0;
+             shift -= Byte.SIZE) {
+            _out.write((int) (seed >>> shift));
+        }
+        _out.write((redAI ? 1 : 0) | (blueAI ? 2 : 0));
+        boolean initial = board.numOfSide(WHITE) == size * size;
+        _out.write(initial ? 0 : 1);
+        if (!initial) {
+            for (int n = 0; n < size * size; n += 1) {
+                _out.write(pack(board.get(n)));
+            }
+        }
+        _inRecord = true;
+    }
+
+    /** Add a move to square #N to the current record. */
+    void move(int n) throws IOException {
+        if (_inRecord) {
+            writeVarint(n + 1);
+        }
+    }
+
+    /** End the current record, if any. */
+    void end() throws IOException {
+        if (_inRecord) {
+            _out.write(0);
+            _inRecord = false;
+        }
+    }
+
+    /** Write out any buffered output. */
+    void flush() throws IOException {
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        end();
+        _out.close();
+    }
+
+    /** Returns the packed form of SQ. */
+    static int pack(Square sq) {
+        return (sq.getSide().ordinal() << 4) | sq.getSpots();
+    }
+
+    /** Returns the Square whose packed form is PACKED. */
+    static Square unpack(int packed) {
+        return Square.square(SIDES[packed >> 4], packed & 0xf);
+    }
+
+    /** Write X >= 0 as an unsigned varint. */
+    private void writeVarint(int x) throws IOException {
+        while (x >= 0x80) {
+            _out.write((x & 0x7f) | 0x80);
+            x >>>= 7;
+        }
+        _out.write(x);
+    }
+
+    /** Destination of my records. */
+    private final OutputStream _out;
+    /** True iff a record has been begun and not ended. */
+    private boolean _inRecord;
+
+}
@@ -0,0 +1,157 @@
+package jump61;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+import static jump61.GameException.error;
+
+/** An Evaluator whose value is a weighted sum of the differences between
+ *  the two players' counts of each of the features defined in Features.
+ *  The weights, and the preferences for quiet moves to corner, edge, and
+ *  inner squares, may be read from a properties file such as
+ *  Weights.properties.
+ *  @author Randy Shi
+ */
+class LinearEvaluator implements Evaluator {
+
+    /** Name of resource containing the default weights. */
+    static final String WEIGHTS = "jump61/Weights.properties";
+
+    /** Property names of the weights, indexed by feature number. */
+    static final String[] FEATURE_NAMES = {
+        "owned", "critical", "advantage", "corners", "edges",
+    };
+
+    /** Property names of the preferences, indexed by the number of
+     *  neighbors of a square less 2. */
+    static final String[] PREFERENCE_NAMES = {
+        "preference.corner", "preference.edge", "preference.inner",
+    };
+
+    /** An evaluator using WEIGHTS, indexed by feature number, for its
+     *  features and PREFERENCES for quiet moves to corners, edges, and
+     *  inner squares, in that order. */
+    LinearEvaluator(int[] weights, int[] preferences) {
+        _weights = weights.clone();
+        _preferences = preferences.clone();
+    }
+
+    /** An evaluator using the weights in Defaults.EVAL_WEIGHTS, preferring
+     *  quiet moves to corners, then edges, then inner squares. */
+    LinearEvaluator() {
+        this(Defaults.EVAL_WEIGHTS, new int[] { 3, 2, 1 });
+    }
+
+    /** Returns an evaluator using the weights in the resource WEIGHTS, or
+     *  the defaults if it cannot be read. */
+    static LinearEvaluator standard() {
+        InputStream resource =
+            LinearEvaluator.class.getClassLoader()
+            .getResourceAsStream(WEIGHTS);
+        if (resource != null) {
+            try (Reader str = new InputStreamReader(resource)) {
+                return read(str);
+            } catch (IOException | GameException excp) {
+                /* Fall through to the defaults. */
+            }
+        }
+        return new LinearEvaluator();
+    }
+
+    /** Returns an evaluator using the weights in the properties file
+     *  named FILENAME.  Weights missing from the file have their default
+     *  values. */
+    static LinearEvaluator read(String fileName) {
+        try (Reader str = new FileReader(fileName)) {
+            return read(str);
+        } catch (IOException excp) {
+            throw error("cannot read weights from %s", fileName);
+        }
+    }
+
+    /** Returns an evaluator using the weights in properties read from
+     *  STR.  Weights missing from STR have their default values. */
+    static LinearEvaluator read(Reader str) throws IOException {
+        Properties props = new Properties();
+        props.load(str);
+        LinearEvaluator result = new LinearEvaluator();
+        for (int f = 0; f < FEATURE_NAMES.length; f += 1) {
+            result._weights[f] =
+                intProperty(props, FEATURE_NAMES[f], result._weights[f]);
+        }
+        for (int k = 0; k < PREFERENCE_NAMES.length; k += 1) {
+            result._preferences[k] =
+                intProperty(props, PREFERENCE_NAMES[k],
+                            result._preferences[k]);
+        }
+        return result;
+    }
+
+    /** Returns the integer value of property NAME in PROPS, or DEFLT if
+     *  there is none. */
+    private static int intProperty(Properties props, String name,
+                                   int deflt) {
+        String value = props.getProperty(name);
+        if (value == null) {
+            return deflt;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException excp) {
+            throw error("bad value for weight %s: %s", name, value);
+        }
+    }
+
+    /** Write my weights to OUT in the format expected by read. */
+    void write(Writer out) {
+        PrintWriter str = new PrintWriter(out);
+        for (int f = 0; f < FEATURE_NAMES.length; f += 1) {
+            str.printf("%s = %d%n", FEATURE_NAMES[f], _weights[f]);
+        }
+        for (int k = 0; k < PREFERENCE_NAMES.length; k += 1) {
+            str.printf("%s = %d%n", PREFERENCE_NAMES[k], _preferences[k]);
+        }
+        str.flush();
+    }
+
+    @Override
+    public int evaluate(Board b, Side p) {
+        Features features = b.features();
+        long value = 0;
+        for (int f = 0; f < Features.NUM_FEATURES; f += 1) {
+            value += (long) _weights[f]
+                * (features.get(p, f) - features.get(p.opposite(), f));
+        }
+        return (int) Math.max(Integer.MIN_VALUE + 1,
+                              Math.min(Integer.MAX_VALUE, value));
+    }
+
+    @Override
+    public int preference(Board b, Side p, int n) {
+        return _preferences[b.neighbors(n) - 2];
+    }
+
+    /** Returns a copy of my weights, indexed by feature number. */
+    int[] weights() {
+        return _weights.clone();
+    }
+
+    /** Returns a copy of my preferences for quiet moves to corners,
+     *  edges, and inner squares, in that order. */
+    int[] preferences() {
+        return _preferences.clone();
+    }
+
+    /** Weight of each feature. */
+    private final int[] _weights;
+    /** Preference for quiet moves to squares with 2, 3, and 4
+     *  neighbors. */
+    private final int[] _preferences;
+
+}
@@ -0,0 +1,267 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ucb.util.CommandArgs;
+
+import static jump61.Side.*;
+
+/** A load generator for Server.  It opens many sessions at once over
+ *  loopback TCP connections, each playing one game as a manual Red
+ *  player that chooses random legal moves against the server's AI.  It
+ *  reports the throughput of sessions and moves, and percentiles of the
+ *  move latency: the time from sending a move to receiving the AI's
+ *  reply.
+ *  @author Randy Shi
+ */
+public class LoadGenerator {
+
+    /** Default number of sessions. */
+    private static final int DEFAULT_SESSIONS = 1000;
+    /** Default board size. */
+    private static final int DEFAULT_SIZE = 4;
+    /** The percentiles of move latency reported. */
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+    /** Nanoseconds per millisecond. */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /** Matches the announcement of a move. */
+    private static final Pattern MOVE =
+        Pattern.compile("(Red|Blue) moves (\\d+) (\\d+)\\.");
+    /** Matches the announcement of a win. */
+    private static final Pattern WIN = Pattern.compile("(Red|Blue) wins\\.");
+    /** Matches an error report. */
+    private static final Pattern ERROR = Pattern.compile("Error: (.*)");
+
+    /** A generator of SESSIONS sessions on N x N boards against the
+     *  server at HOST:PORT, choosing moves with seeds drawn from SEED. */
+    LoadGenerator(InetAddress host, int port, int sessions, int n,
+                  long seed) {
+        _host = host;
+        _port = port;
+        _sessions = sessions;
+        _size = n;
+        _seed = seed;
+    }
+
+    /** Run all sessions at once, wait for them to finish, and report the
+     *  results on OUT. */
+    void run(PrintWriter out) throws IOException {
+        ExecutorService clients = Server.newSessionExecutor();
+        Random seeds = new Random(_seed);
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < _sessions; i += 1) {
+            long seed = seeds.nextLong();
+            results.add(clients.submit(() -> session(seed)));
+        }
+        long[][] latencies = new long[_sessions][];
+        int failures = 0, moves = 0;
+        for (int i = 0; i < _sessions; i += 1) {
+            try {
+                latencies[i] = results.get(i).get();
+            } catch (ExecutionException | InterruptedException excp) {
+                failures += 1;
+                latencies[i] = new long[0];
+                if (failures == 1) {
+                    out.printf("session failed: %s%n",
+                               excp.getCause() == null ? excp
+                               : excp.getCause());
+                }
+            }
+            moves += latencies[i].length;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+        long[] all = new long[moves];
+        int k = 0;
+        for (long[] session : latencies) {
+            System.arraycopy(session, 0, all, k, session.length);
+            k += session.length;
+        }
+        Arrays.sort(all);
+        out.printf("%d sessions (%d failed), %d moves in %.2f s: "
+                   + "%.1f sessions/s, %.1f moves/s%n",
+                   _sessions, failures, moves, seconds,
+                   (_sessions - failures) / seconds, moves / seconds);
+        out.print("move latency ms:");
+        for (double p : PERCENTILES) {
+            String label = p == Math.rint(p) ? Integer.toString((int) p)
+                : Double.toString(p);
+            out.printf(" p%s %.2f", label, percentile(all, p));
+        }
+        out.printf(" max %.2f%n", moves == 0 ? 0
+                   : all[moves - 1] / NANOS_PER_MILLI);
+        out.flush();
+    }
+
+    /** Returns the Pth percentile, in milliseconds, of the latencies in
+     *  nanoseconds in SORTED, which is in ascending order. */
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int k = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, k))]
+            / NANOS_PER_MILLI;
+    }
+
+    /** Play one game in a new session, choosing moves with SEED.  Returns
+     *  the latencies, in nanoseconds, of the AI's replies. */
+    private long[] session(long seed) throws IOException {
+        try (Socket socket = new Socket(_host, _port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out =
+                new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            Random random = new Random(seed);
+            MutableBoard board = new MutableBoard(_size);
+            long[] latencies = new long[_size * _size * _size];
+            int moves = 0;
+            out.printf("size %d%nstart%n", _size);
+            while (board.getWinner() == null) {
+                int move;
+                do {
+                    move = random.nextInt(_size * _size);
+                } while (!board.isLegal(RED, move));
+                long sent = System.nanoTime();
+                out.printf("%d %d%n", board.row(move), board.col(move));
+                out.flush();
+                board.addSpot(RED, move);
+                if (board.getWinner() != null) {
+                    break;
+                }
+                int reply = awaitMove(in, board);
+                if (moves == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, 2 * moves);
+                }
+                latencies[moves] = System.nanoTime() - sent;
+                moves += 1;
+                board.addSpot(BLUE, reply);
+            }
+            awaitWin(in);
+            out.println("quit");
+            out.flush();
+            while (in.readLine() != null) {
+                continue;
+            }
+            return Arrays.copyOf(latencies, moves);
+        }
+    }
+
+    /** Read output from IN up to the announcement of Blue's next move,
+     *  and return the number of its square on BOARD. */
+    private int awaitMove(BufferedReader in, Board board)
+        throws IOException {
+        while (true) {
+            String line = readLine(in);
+            Matcher move = MOVE.matcher(line);
+            if (move.find() && move.group(1).equals("Blue")) {
+                return board.sqNum(Integer.parseInt(move.group(2)),
+                                   Integer.parseInt(move.group(3)));
+            }
+        }
+    }
+
+    /** Read output from IN up to the announcement of the winner. */
+    private void awaitWin(BufferedReader in) throws IOException {
+        while (!WIN.matcher(readLine(in)).find()) {
+            continue;
+        }
+    }
+
+    /** Returns the next line from IN, which must exist and must not report
+     *  an error. */
+    private String readLine(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new IOException("session ended early");
+        }
+        Matcher error = ERROR.matcher(line);
+        if (error.find()) {
+            throw new IOException("server reported: " + error.group(1));
+        }
+        return line;
+    }
+
+    /** Generate load on a server.  ARGS0 may contain --sessions=N,
+     *  --size=N (board size), --seed=N, and --port=N, the port of a
+     *  server on this host.  Without --port, runs its own Server on an
+     *  unused loopback port, with --threads=N threads for AI players
+     *  (default the number of processors). */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--sessions=(\\d+){0,1} --size=(\\d+){0,1} "
+                            + "--seed=(-?\\d+){0,1} --port=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1}", args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.LoadGenerator "
+                               + "[--sessions=N] [--size=N] [--seed=N] "
+                               + "[--port=N | --threads=N]");
+            System.exit(1);
+        }
+        int sessions = Tuner.intArg(args, "--sessions", DEFAULT_SESSIONS);
+        int size = Tuner.intArg(args, "--size", DEFAULT_SIZE);
+        long seed = args.contains("--seed")
+            ? Long.parseLong(args.getFirst("--seed")) : 0;
+        InetAddress host = InetAddress.getLoopbackAddress();
+        PrintWriter out = new PrintWriter(System.out, true);
+        if (args.contains("--port")) {
+            new LoadGenerator(host, Tuner.intArg(args, "--port", 0),
+                              sessions, size, seed).run(out);
+            return;
+        }
+        int threads = Tuner.intArg(args, "--threads",
+                                   Runtime.getRuntime()
+                                   .availableProcessors());
+        try (Server server = new Server(threads);
+             ServerSocket listener =
+             new ServerSocket(0, Server.BACKLOG, host)) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    server.listen(listener);
+                } catch (IOException excp) {
+                    System.err.println(excp);
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            out.printf("%s threads for sessions, %d for AI%n",
+                       Server.hasVirtualThreads() ? "virtual" : "pooled",
+                       threads);
+            new LoadGenerator(host, listener.getLocalPort(), sessions,
+                              size, seed).run(out);
+        }
+    }
+
+    /** Address of the server. */
+    private final InetAddress _host;
+    /** Port of the server. */
+    private final int _port;
+    /** Number of sessions to run. */
+    private final int _sessions;
+    /** Board size of each session's game. */
+    private final int _size;
+    /** Seed for the seeds of the sessions' random moves. */
+    private final long _seed;
+
+}
@@ -28,17 +28,30 @@ public class Main {
     static final String USAGE = "jump61/Usage.txt";
 
     /** Play jump61.  ARGS0 may consist of the single string
-     *  '--display' to indicate that the game is played using a GUI. Prints
-     *  a usage message if the arguments are wrong. */
+     *  '--display' to indicate that the game is played using a GUI, or
+     *  '--engine' to run the engine protocol (see Engine) on the standard
+     *  input and output. Prints a usage message if the arguments are
+     *  wrong. */
     public static void main(String[] args0) {
         CommandArgs args =
-            new CommandArgs("--display{0,1}", args0);
+            new CommandArgs("--display{0,1} --engine{0,1}", args0);
 
-        if (!args.ok()) {
+        if (!args.ok()
+            || args.contains("--display") && args.contains("--engine")) {
             usage();
             return;
         }
 
+        if (args.contains("--engine")) {
+            try {
+                Engine.main();
+            } catch (IOException excp) {
+                System.err.println(excp.getMessage());
+                System.exit(1);
+            }
+            System.exit(0);
+        }
+
         Game game;
         if (args.contains("--display")) {
             try {
@@ -52,14 +65,18 @@ public class Main {
                 game = null;
                 System.err.println("Internal error");
                 System.exit(1);
+                return;
             }
         } else {
             Writer output = new OutputStreamWriter(System.out);
             game = new Game(new InputStreamReader(System.in),
                             output, output,
                             new OutputStreamWriter(System.err));
-            System.exit(game.play());
         }
+        /* This thread is the game thread: it alone changes the game,
+         * running the commands that the display sends through the pipe,
+         * or that come from the standard input. */
+        System.exit(game.play());
     }
 
     /** Print the contents of the resource named NAME on OUT.
@@ -0,0 +1,263 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ucb.util.CommandArgs;
+
+import static jump61.Side.*;
+
+/** Plays a match between two evaluators, a test and a base, to decide
+ *  whether the test is stronger, using as few games as the evidence
+ *  allows.  Games are played in pairs, as by Tuner: both games of a pair
+ *  use the same seed, and each evaluator plays each color once.  After
+ *  each pair, the match reports the Elo difference of the test over the
+ *  base with a 95% confidence interval, and updates a sequential
+ *  probability ratio test (SPRT) of the hypothesis that the difference
+ *  is ELO1 against the hypothesis that it is ELO0.  The match stops as
+ *  soon as the test accepts either hypothesis, or after a maximum number
+ *  of games.  Jump61 has no draws, so each game is a Bernoulli trial.
+ *  Pairs are played in parallel but counted in order, so that a match
+ *  with a given seed always ends the same way.
+ *  @author Randy Shi
+ */
+public class Match {
+
+    /** A sequential probability ratio test between the hypotheses that
+     *  the Elo difference is ELO0 (H0) or ELO1 (H1), for games without
+     *  draws. */
+    static class Sprt {
+
+        /** Result of status: H0 is accepted. */
+        static final int H0 = -1;
+        /** Result of status: H1 is accepted. */
+        static final int H1 = 1;
+        /** Result of status: neither is accepted yet. */
+        static final int CONTINUE = 0;
+
+        /** A test of H0: Elo difference ELO0 against H1: Elo difference
+         *  ELO1 with false-positive rate ALPHA and false-negative rate
+         *  BETA. */
+        Sprt(double elo0, double elo1, double alpha, double beta) {
+            double p0 = expectedScore(elo0), p1 = expectedScore(elo1);
+            _winWeight = Math.log(p1 / p0);
+            _lossWeight = Math.log((1 - p1) / (1 - p0));
+            _lower = Math.log(beta / (1 - alpha));
+            _upper = Math.log((1 - beta) / alpha);
+        }
+
+        /** Record a game that the test won iff WON. */
+        void add(boolean won) {
+            _llr += won ? _winWeight : _lossWeight;
+        }
+
+        /** Returns the log-likelihood ratio of H1 to H0 so far. */
+        double llr() {
+            return _llr;
+        }
+
+        /** Returns the bound of llr() at or below which H0 is
+         *  accepted. */
+        double lower() {
+            return _lower;
+        }
+
+        /** Returns the bound of llr() at or above which H1 is
+         *  accepted. */
+        double upper() {
+            return _upper;
+        }
+
+        /** Returns H0, H1, or CONTINUE. */
+        int status() {
+            return _llr <= _lower ? H0 : _llr >= _upper ? H1 : CONTINUE;
+        }
+
+        /** Change in llr() for a win and for a loss. */
+        private final double _winWeight, _lossWeight;
+        /** Bounds of llr(). */
+        private final double _lower, _upper;
+        /** The log-likelihood ratio. */
+        private double _llr;
+    }
+
+    /** A match on N x N boards between evaluators TEST and BASE,
+     *  playing games on THREADS threads. */
+    Match(int n, Evaluator test, Evaluator base, int threads) {
+        _size = n;
+        _test = test;
+        _base = base;
+        _threads = threads;
+    }
+
+    /** Play pairs of games, with seeds chosen using SEED, until SPRT
+     *  accepts a hypothesis or MAXGAMES games have been played, reporting
+     *  progress on OUT.  Returns SPRT's final status. */
+    int run(Sprt sprt, int maxGames, long seed, PrintWriter out) {
+        Random seeds = new Random(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        Deque<Future<Integer>> pairs = new ArrayDeque<>();
+        int pairsLeft = (maxGames + 1) / 2;
+        try {
+            while (sprt.status() == Sprt.CONTINUE
+                   && (pairsLeft > 0 || !pairs.isEmpty())) {
+                while (pairsLeft > 0 && pairs.size() < 2 * _threads) {
+                    long gameSeed = seeds.nextLong();
+                    pairs.add(pool.submit(() -> playPair(gameSeed)));
+                    pairsLeft -= 1;
+                }
+                int wins = pairs.remove().get();
+                for (int k = 0; k < 2; k += 1) {
+                    sprt.add(k < wins);
+                }
+                _wins += wins;
+                _games += 2;
+                report(sprt, out);
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        } finally {
+            pool.shutdownNow();
+        }
+        out.println(sprt.status() == Sprt.H1 ? "H1 accepted: test is stronger."
+                    : sprt.status() == Sprt.H0 ? "H0 accepted: test is not "
+                    + "stronger." : "Inconclusive.");
+        out.flush();
+        return sprt.status();
+    }
+
+    /** Play a pair of games with SEED, and return the number the test
+     *  evaluator won. */
+    private int playPair(long seed) {
+        int wins = 0;
+        if (SelfPlay.play(_size, _test, _base, seed) == RED) {
+            wins += 1;
+        }
+        if (SelfPlay.play(_size, _base, _test, seed) == BLUE) {
+            wins += 1;
+        }
+        return wins;
+    }
+
+    /** Report the results so far, and the state of SPRT, on OUT. */
+    private void report(Sprt sprt, PrintWriter out) {
+        double[] interval = eloInterval(_wins, _games);
+        out.printf("games %d: +%d -%d, Elo %+.1f [%+.1f, %+.1f], "
+                   + "LLR %.2f (%.2f, %.2f)%n", _games, _wins,
+                   _games - _wins, elo((double) _wins / _games),
+                   interval[0], interval[1], sprt.llr(), sprt.lower(),
+                   sprt.upper());
+        out.flush();
+    }
+
+    /** Returns the expected score of a player ELO points stronger than
+     *  its opponent. */
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / ELO_SCALE));
+    }
+
+    /** Returns the Elo difference corresponding to SCORE, the fraction of
+     *  games won, which is infinite if SCORE is 0 or 1. */
+    static double elo(double score) {
+        return -ELO_SCALE * Math.log10(1 / score - 1);
+    }
+
+    /** Returns the 95% confidence interval {low, high} of the Elo
+     *  difference of a player who has won WINS of GAMES games. */
+    static double[] eloInterval(int wins, int games) {
+        double score = (double) wins / games;
+        double margin = Z_95 * Math.sqrt(score * (1 - score) / games);
+        return new double[] { elo(Math.max(0, score - margin)),
+                              elo(Math.min(1, score + margin)) };
+    }
+
+    /** Play a match.  ARGS0 may contain --test=FILE and --base=FILE
+     *  (weights of the two evaluators; default the standard ones),
+     *  --size=N, --games=N (most games to play), --threads=N, --seed=N,
+     *  --elo0=X and --elo1=X (the Elo differences of H0 and H1), and
+     *  --alpha=X and --beta=X (the error rates of SPRT).  Exits with
+     *  status 0 if H1 is accepted, 1 if H0 is, and 2 if neither is. */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--test=(.+){0,1} --base=(.+){0,1} "
+                            + "--size=(\\d+){0,1} --games=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --seed=(-?\\d+){0,1} "
+                            + "--elo0=(-?[\\d.]+){0,1} "
+                            + "--elo1=(-?[\\d.]+){0,1} "
+                            + "--alpha=([\\d.]+){0,1} --beta=([\\d.]+){0,1}",
+                            args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Match [--test=FILE] "
+                               + "[--base=FILE] [--size=N] [--games=N] "
+                               + "[--threads=N] [--seed=N] [--elo0=X] "
+                               + "[--elo1=X] [--alpha=X] [--beta=X]");
+            System.exit(1);
+        }
+        Evaluator test = args.contains("--test")
+            ? LinearEvaluator.read(args.getFirst("--test"))
+            : LinearEvaluator.standard();
+        Evaluator base = args.contains("--base")
+            ? LinearEvaluator.read(args.getFirst("--base"))
+            : LinearEvaluator.standard();
+        Sprt sprt = new Sprt(doubleArg(args, "--elo0", DEFAULT_ELO0),
+                             doubleArg(args, "--elo1", DEFAULT_ELO1),
+                             doubleArg(args, "--alpha", DEFAULT_ERROR),
+                             doubleArg(args, "--beta", DEFAULT_ERROR));
+        Match match =
+            new Match(Tuner.intArg(args, "--size", DEFAULT_SIZE), test, base,
+                      Tuner.intArg(args, "--threads",
+                                   Runtime.getRuntime()
+                                   .availableProcessors()));
+        long seed = args.contains("--seed")
+            ? Long.parseLong(args.getFirst("--seed")) : 0;
+        int status = match.run(sprt, Tuner.intArg(args, "--games",
+                                                  DEFAULT_GAMES),
+                               seed, new PrintWriter(System.out));
+        System.exit(status == Sprt.H1 ? 0 : status == Sprt.H0 ? 1 : 2);
+    }
+
+    /** Returns the value of option KEY in ARGS as a double, or DEFLT if it
+     *  is absent. */
+    private static double doubleArg(CommandArgs args, String key,
+                                    double deflt) {
+        return args.contains(key) ? Double.parseDouble(args.getFirst(key))
+            : deflt;
+    }
+
+    /** Elo points by which a player must be stronger to be expected to
+     *  win 10 games for each 1 it loses. */
+    private static final double ELO_SCALE = 400;
+    /** The 97.5th percentile of the standard normal distribution. */
+    private static final double Z_95 = 1.96;
+    /** Default board size. */
+    private static final int DEFAULT_SIZE = 4;
+    /** Default maximum number of games. */
+    private static final int DEFAULT_GAMES = 20000;
+    /** Default Elo difference of H0. */
+    private static final double DEFAULT_ELO0 = 0;
+    /** Default Elo difference of H1. */
+    private static final double DEFAULT_ELO1 = 10;
+    /** Default error rates of SPRT. */
+    private static final double DEFAULT_ERROR = 0.05;
+
+    /** Size of the boards. */
+    private final int _size;
+    /** The evaluator being tested. */
+    private final Evaluator _test;
+    /** The evaluator it is compared to. */
+    private final Evaluator _base;
+    /** Number of threads on which to play games. */
+    private final int _threads;
+    /** Number of games the test evaluator has won so far. */
+    private int _wins;
+    /** Number of games played so far. */
+    private int _games;
+
+}
@@ -4,6 +4,7 @@ package jump61;
 import static jump61.Side.*;
 import static jump61.Square.square;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 /** A Jump61 board state that may be modified.
@@ -33,14 +34,29 @@ class MutableBoard extends Board {
 
     /** (Re)initialize me to a cleared board with N squares on a side. */
     void initializeBoard(int N) {
+        reset(N);
+        publish();
+    }
+
+    /** (Re)initialize me to a cleared board with N squares on a side,
+     *  without publishing the result. */
+    private void reset(int N) {
         _size = N;
         _spots = N * N;
+        Arrays.fill(_keys, 0);
+        _symmetries = Symmetry.table(N);
         _board = new HashMap<Integer, Square>();
         for (int i = 1; i <= N; i++) {
             for (int j = 1; j <= N; j++) {
                 _board.put(sqNum(i, j), Square.INITIAL);
             }
         }
+        _rows = new Square[N][N];
+        for (Square[] row : _rows) {
+            Arrays.fill(row, Square.INITIAL);
+        }
+        unshareAll();
+        _features.clear(N);
     }
 
     /** Copies the contents of BOARD to the board. */
@@ -52,15 +68,31 @@ class MutableBoard extends Board {
                 int spots = board.get(key).getSpots();
                 _spots += board.get(key).getSpots()
                         - get(key).getSpots();
-                _board.put(key, square(side, spots));
+                put(key, square(side, spots));
             }
         }
     }
 
     @Override
     void copy(Board board) {
-        initializeBoard(board.size());
-        copyToBoard(board);
+        if (board instanceof MutableBoard) {
+            MutableBoard other = (MutableBoard) board;
+            _size = other._size;
+            _spots = other._spots;
+            _symmetries = other._symmetries;
+            System.arraycopy(other._keys, 0, _keys, 0, Symmetry.COUNT);
+            _board = new HashMap<Integer, Square>(other._board);
+            _rows = new Square[_size][];
+            for (int r = 0; r < _size; r += 1) {
+                _rows[r] = other._rows[r].clone();
+            }
+            unshareAll();
+            _features.copy(other._features);
+        } else {
+            reset(board.size());
+            copyToBoard(board);
+        }
+        publish();
     }
 
     @Override
@@ -75,15 +107,12 @@ class MutableBoard extends Board {
 
     @Override
     int numOfSide(Side side) {
-        int numSides = 0;
-        for (int i = 1; i <= size(); i++) {
-            for (int j = 1; j <= size(); j++) {
-                int key = sqNum(i, j);
-                boolean hasSide = get(key).getSide().equals(side);
-                numSides += hasSide ? 1 : 0;
-            }
-        }
-        return numSides;
+        return _features.get(side, Features.OWNED);
+    }
+
+    @Override
+    Features features() {
+        return _features;
     }
 
     @Override
@@ -111,7 +140,7 @@ class MutableBoard extends Board {
             if (newSpotNum > neighbors(n)) {
                 newSpotNum = 1;
             }
-            _board.put(n, square(player, newSpotNum));
+            put(n, square(player, newSpotNum));
             if (newSpotNum == 1 && getWinner() == null) {
                 jump(player, n);
             }
@@ -123,22 +152,22 @@ class MutableBoard extends Board {
         int r = row(i), c = col(i);
         if (c - 1 > 0) {
             i = sqNum(r, c - 1);
-            _board.put(i, square(player, get(i).getSpots()));
+            put(i, square(player, get(i).getSpots()));
             addSpots(player, i);
         }
         if (c + 1 <= size()) {
             i = sqNum(r, c + 1);
-            _board.put(i, square(player, get(i).getSpots()));
+            put(i, square(player, get(i).getSpots()));
             addSpots(player, i);
         }
         if (r - 1 > 0) {
             i = sqNum(r - 1, c);
-            _board.put(i, square(player, get(i).getSpots()));
+            put(i, square(player, get(i).getSpots()));
             addSpots(player, i);
         }
         if (r + 1 <= size()) {
             i = sqNum(r + 1, c);
-            _board.put(i, square(player, get(i).getSpots()));
+            put(i, square(player, get(i).getSpots()));
             addSpots(player, i);
         }
     }
@@ -146,6 +175,7 @@ class MutableBoard extends Board {
     @Override
     void set(int r, int c, int num, Side player) {
         internalSet(sqNum(r, c), square(player, num));
+        publish();
     }
 
     @Override
@@ -158,11 +188,121 @@ class MutableBoard extends Board {
      *  of numbers of squares of each color.  */
     private void internalSet(int ind, Square sq) {
         _spots += sq.getSpots() - get(ind).getSpots();
-        _board.put(ind, sq);
+        put(ind, sq);
+    }
+
+    /** Store SQ in square #N, keeping my keys and features up to date.
+     *  All changes to the contents of an initialized board go through
+     *  here. */
+    private void put(int n, Square sq) {
+        Square old = get(n);
+        for (int t = 0; t < Symmetry.COUNT; t += 1) {
+            int image = _symmetries[t][n];
+            _keys[t] ^= squareKey(image, old) ^ squareKey(image, sq);
+        }
+        _board.put(n, sq);
+        int r = n / _size;
+        if (_rowGenerations[r] != _generation) {
+            if (_rowsGeneration != _generation) {
+                _rows = _rows.clone();
+                _rowsGeneration = _generation;
+            }
+            _rows[r] = _rows[r].clone();
+            _rowGenerations[r] = _generation;
+        }
+        _rows[r][n % _size] = sq;
+        _snapshot = null;
+        _critical = null;
+        _features.update(this, n, old);
+    }
+
+    /** Mark _rows and all its rows as mine alone, none being shared
+     *  with a snapshot. */
+    private void unshareAll() {
+        _generation = 0;
+        _rowsGeneration = 0;
+        _rowGenerations = new int[_size];
+        _snapshot = null;
+        _critical = null;
+    }
+
+    /** Returns the index of my critical squares, built when first asked
+     *  for after I change. */
+    @Override
+    CriticalIndex criticalIndex() {
+        if (_critical == null) {
+            _critical = new CriticalIndex(this);
+        }
+        return _critical;
     }
 
-    /** Notify all Observers of a change. */
+    /** Returns an immutable board with my current contents, in constant
+     *  time.  The snapshot shares my rows; I copy a row before next
+     *  changing it. */
+    @Override
+    PersistentBoard snapshot() {
+        if (_snapshot == null) {
+            int[] counts = new int[SIDES.length];
+            for (Side side : SIDES) {
+                counts[side.ordinal()] = numOfSide(side);
+            }
+            _snapshot = new PersistentBoard(_size, _rows, _spots, counts,
+                                            _keys.clone());
+            _generation += 1;
+        }
+        return _snapshot;
+    }
+
+    @Override
+    long key() {
+        return _keys[0];
+    }
+
+    @Override
+    long canonicalKey() {
+        return _keys[canonicalTransform()];
+    }
+
+    @Override
+    int canonicalTransform() {
+        int best = 0;
+        for (int t = 1; t < Symmetry.COUNT; t += 1) {
+            if (_keys[t] < _keys[best]) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /** Start publishing my contents: from now on, each complete change
+     *  to me makes my new contents available through published(). */
+    void startPublishing() {
+        _publishing = true;
+        publish();
+    }
+
+    /** Returns the last version of my contents that I published: the
+     *  result of my last complete change, or null if I am not publishing
+     *  (see startPublishing).  This is the only method of mine that
+     *  threads other than the one that changes me may call.  It never
+     *  blocks, and the board it returns never changes, so a reader
+     *  never sees a move half made.  Each new version is a new object,
+     *  so a reader may detect change by comparing references. */
+    PersistentBoard published() {
+        return _published;
+    }
+
+    /** If I am publishing, publish my current contents.  Called after
+     *  each complete change to me. */
+    private void publish() {
+        if (_publishing) {
+            _published = snapshot();
+        }
+    }
+
+    /** Notify all Observers of a change, publishing it first. */
     private void announce() {
+        publish();
         setChanged();
         notifyObservers();
     }
@@ -215,4 +355,36 @@ class MutableBoard extends Board {
         return hashCode;
     }
 
+    /** Hash keys of the images of my current contents under each
+     *  symmetry; _keys[0] is key(). */
+    private final long[] _keys = new long[Symmetry.COUNT];
+    /** The symmetry table for my size. */
+    private int[][] _symmetries;
+    /** My contents by row.  Rows copied before generation _generation,
+     *  and the array itself if copied before then, may be shared with
+     *  snapshots and must be copied before being changed. */
+    private Square[][] _rows;
+    /** The generation in which _rows was last copied. */
+    private int _rowsGeneration;
+    /** The generation in which each of my rows was last copied. */
+    private int[] _rowGenerations;
+    /** The current generation, which each new snapshot advances, so
+     *  marking all existing rows as shared. */
+    private int _generation;
+    /** The snapshot of my current contents, or null if I have changed
+     *  since my last one. */
+    private PersistentBoard _snapshot;
+    /** The index of my critical squares, or null if I have changed
+     *  since it was built. */
+    private CriticalIndex _critical;
+    /** True iff I publish each complete change (see published()). */
+    private boolean _publishing;
+    /** The last published version of my contents.  Being volatile, and
+     *  immutable, it is safely published to other threads. */
+    private volatile PersistentBoard _published;
+    /** All Sides, indexed by ordinal. */
+    private static final Side[] SIDES = Side.values();
+    /** Counts of features of my current contents. */
+    private final Features _features = new Features();
+
 }
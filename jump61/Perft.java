@@ -0,0 +1,250 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ucb.util.CommandArgs;
+
+/** Counts the positions of the game tree to a fixed depth ("perft"), as
+ *  a check that Board implementations generate identical trees and as a
+ *  benchmark of their speed.  From a given position, it counts the
+ *  leaves at the given depth (positions won sooner have no successors
+ *  and so no leaves) and a digest of their contents, the sum of a hash
+ *  of each leaf's squares, which does not depend on the order in which
+ *  leaves are visited.  Moves are generated with isLegal and made as by
+ *  addSpot.
+ *  @author Randy Shi
+ */
+public class Perft {
+
+    /** The Board implementations that may be counted. */
+    enum Implementation {
+        /** MutableBoard, copied before each move. */
+        MUTABLE {
+            @Override
+            Board start(Board position) {
+                return new MutableBoard(position);
+            }
+
+            @Override
+            Board play(Board b, Side player, int n) {
+                Board next = new MutableBoard(b);
+                next.addSpot(player, n);
+                return next;
+            }
+        },
+        /** PersistentBoard, which shares unchanged rows. */
+        PERSISTENT {
+            @Override
+            Board start(Board position) {
+                return PersistentBoard.copyOf(position);
+            }
+
+            @Override
+            Board play(Board b, Side player, int n) {
+                return ((PersistentBoard) b).play(player, n);
+            }
+        };
+
+        /** Returns a board of this implementation with the contents of
+         *  POSITION. */
+        abstract Board start(Board position);
+
+        /** Returns the board that results from a move by PLAYER to square
+         *  #N of B, a board of this implementation, leaving B
+         *  unchanged. */
+        abstract Board play(Board b, Side player, int n);
+    }
+
+    /** The counts for one tree. */
+    static class Count {
+        /** Number of leaves. */
+        long leaves;
+        /** Sum of the hashes of the leaves. */
+        long digest;
+        /** Number of positions visited, including the leaves. */
+        long nodes;
+
+        /** Add the counts in OTHER to mine. */
+        void add(Count other) {
+            leaves += other.leaves;
+            digest += other.digest;
+            nodes += other.nodes;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Count)) {
+                return false;
+            }
+            Count other = (Count) obj;
+            return leaves == other.leaves && digest == other.digest
+                && nodes == other.nodes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(leaves * HASH_PRIME + digest);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d leaves, digest %016x", leaves, digest);
+        }
+    }
+
+    /** A counter of trees made of boards of implementation IMPL. */
+    Perft(Implementation impl) {
+        _impl = impl;
+    }
+
+    /** Returns the counts for the tree of depth DEPTH below POSITION. */
+    Count count(Board position, int depth) {
+        Count result = new Count();
+        count(_impl.start(position), depth, result);
+        return result;
+    }
+
+    /** Returns the counts for the tree of depth DEPTH below POSITION,
+     *  counting the subtrees below each move from POSITION in parallel
+     *  on THREADS threads. */
+    Count count(Board position, int depth, int threads) {
+        Board root = _impl.start(position);
+        Count result = new Count();
+        if (depth == 0 || root.getWinner() != null) {
+            count(root, depth, result);
+            return result;
+        }
+        result.nodes += 1;
+        Side player = root.whoseMove();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Count>> subtrees = new ArrayList<>();
+            for (int n = 0; n < root.size() * root.size(); n += 1) {
+                if (root.isLegal(player, n)) {
+                    int move = n;
+                    subtrees.add(pool.submit(() -> {
+                        Count subtree = new Count();
+                        count(_impl.play(root, player, move), depth - 1,
+                              subtree);
+                        return subtree;
+                    }));
+                }
+            }
+            for (Future<Count> subtree : subtrees) {
+                result.add(subtree.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException("perft failed", excp);
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /** Add the counts for the tree of depth DEPTH below B to RESULT. */
+    private void count(Board b, int depth, Count result) {
+        result.nodes += 1;
+        if (depth == 0) {
+            result.leaves += 1;
+            result.digest += hash(b);
+            return;
+        }
+        if (b.getWinner() != null) {
+            return;
+        }
+        Side player = b.whoseMove();
+        for (int n = 0; n < b.size() * b.size(); n += 1) {
+            if (b.isLegal(player, n)) {
+                count(_impl.play(b, player, n), depth - 1, result);
+            }
+        }
+    }
+
+    /** Returns a 64-bit FNV-1a hash of the contents of B, computed from
+     *  its squares alone, so that it checks them independently of any
+     *  key B keeps. */
+    static long hash(Board b) {
+        long h = FNV_BASIS;
+        for (int n = 0; n < b.size() * b.size(); n += 1) {
+            h = (h ^ GameRecordWriter.pack(b.get(n))) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** Count trees.  ARGS0 may contain --size=N (size of an empty
+     *  starting board; default Defaults.BOARD_SIZE), --position=PACKED
+     *  (a starting position in the form used by Engine), --depth=N,
+     *  --threads=N (count in parallel on N threads), and
+     *  --board=mutable|persistent|all (the implementations to count and
+     *  compare; default all).  Exits with status 1 if implementations
+     *  disagree. */
+    public static void main(String[] args0) {
+        CommandArgs args =
+            new CommandArgs("--size=(\\d+){0,1} "
+                            + "--position=(\\p{XDigit}+){0,1} "
+                            + "--depth=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--board=(mutable|persistent|all){0,1}",
+                            args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Perft [--size=N] "
+                               + "[--position=PACKED] [--depth=N] "
+                               + "[--threads=N] "
+                               + "[--board=mutable|persistent|all]");
+            System.exit(1);
+        }
+        MutableBoard position =
+            new MutableBoard(Tuner.intArg(args, "--size",
+                                          Defaults.BOARD_SIZE));
+        if (args.contains("--position")) {
+            Engine.unpack(args.getFirst("--position"), position);
+        }
+        int depth = Tuner.intArg(args, "--depth", DEFAULT_DEPTH);
+        int threads = Tuner.intArg(args, "--threads", 1);
+        String which = args.contains("--board") ? args.getFirst("--board")
+            : "all";
+        Count reference = null;
+        boolean agree = true;
+        for (Implementation impl : Implementation.values()) {
+            if (!which.equals("all")
+                && !which.equalsIgnoreCase(impl.toString())) {
+                continue;
+            }
+            Perft perft = new Perft(impl);
+            long start = System.nanoTime();
+            Count count = threads > 1 ? perft.count(position, depth, threads)
+                : perft.count(position, depth);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-10s depth %d: %s, %d positions in %.2f s "
+                              + "(%.0f positions/s)%n",
+                              impl.toString().toLowerCase(), depth, count,
+                              count.nodes, seconds, count.nodes / seconds);
+            if (reference == null) {
+                reference = count;
+            } else if (!reference.equals(count)) {
+                agree = false;
+            }
+        }
+        if (!agree) {
+            System.out.println("Implementations disagree.");
+            System.exit(1);
+        }
+    }
+
+    /** Default depth. */
+    private static final int DEFAULT_DEPTH = 4;
+    /** FNV-1a offset basis. */
+    private static final long FNV_BASIS = 0xcbf29ce484222325L;
+    /** FNV-1a prime. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /** Multiplier for combining hash codes. */
+    private static final long HASH_PRIME = 31;
+
+    /** The implementation of the boards I count. */
+    private final Implementation _impl;
+
+}
@@ -0,0 +1,301 @@
+package jump61;
+
+import static jump61.Side.*;
+import static jump61.Square.square;
+
+import java.util.Arrays;
+
+/** An immutable Board.  Since a PersistentBoard never changes once made,
+ *  any number of threads may read it without locking.  Making a move on
+ *  one (see play) yields a new PersistentBoard that shares with the old
+ *  one every row that the move leaves unchanged, and a MutableBoard
+ *  yields a PersistentBoard of its current contents in constant time
+ *  (see MutableBoard.snapshot).  All the operations that would modify
+ *  a Board are unsupported.
+ *  @author Randy Shi
+ */
+final class PersistentBoard extends Board {
+
+    /** A cleared board with N squares on a side. */
+    PersistentBoard(int N) {
+        this(N, clearedRows(N), N * N, clearedCounts(N),
+             new long[Symmetry.COUNT]);
+    }
+
+    /** A board with SIZE squares on a side, whose contents, by row, are
+     *  ROWS, holding SPOTS spots in all, COUNTS[s] squares of the Side
+     *  whose ordinal is s, and whose images under each symmetry t have
+     *  keys KEYS[t].  None of ROWS, its rows, COUNTS, or KEYS may be
+     *  modified afterwards. */
+    PersistentBoard(int size, Square[][] rows, int spots, int[] counts,
+                    long[] keys) {
+        _size = size;
+        _rows = rows;
+        _spots = spots;
+        _counts = counts;
+        _keys = keys;
+    }
+
+    /** Returns a PersistentBoard with the same contents as B, copying
+     *  them in full. */
+    static PersistentBoard copyOf(Board b) {
+        int size = b.size();
+        Square[][] rows = new Square[size][size];
+        for (int n = 0; n < size * size; n += 1) {
+            rows[n / size][n % size] = b.get(n);
+        }
+        int[] counts = new int[SIDES.length];
+        for (Side side : SIDES) {
+            counts[side.ordinal()] = b.numOfSide(side);
+        }
+        long[] keys = new long[Symmetry.COUNT];
+        Symmetry.keys(b, keys);
+        return new PersistentBoard(size, rows, b.numPieces(), counts, keys);
+    }
+
+    /** Returns the board that results from a move by PLAYER to square #N
+     *  of me, which must be legal.  The result shares with me all rows
+     *  that the move does not change. */
+    PersistentBoard play(Side player, int n) {
+        Move move = new Move();
+        move.addSpots(player, n);
+        return move.result();
+    }
+
+    /** Returns the board that results from a move by PLAYER to row R,
+     *  column C of me, which must be legal. */
+    PersistentBoard play(Side player, int r, int c) {
+        return play(player, sqNum(r, c));
+    }
+
+    @Override
+    PersistentBoard snapshot() {
+        return this;
+    }
+
+    /** Returns the index of my critical squares, built when first asked
+     *  for.  Should two threads ask at once, each may build one; they are
+     *  equal and immutable, so either will do. */
+    @Override
+    CriticalIndex criticalIndex() {
+        CriticalIndex index = _critical;
+        if (index == null) {
+            index = new CriticalIndex(this);
+            _critical = index;
+        }
+        return index;
+    }
+
+    @Override
+    int size() {
+        return _size;
+    }
+
+    @Override
+    Square get(int n) {
+        return _rows[n / _size][n % _size];
+    }
+
+    @Override
+    int numPieces() {
+        return _spots;
+    }
+
+    @Override
+    int numOfSide(Side side) {
+        return _counts[side.ordinal()];
+    }
+
+    @Override
+    boolean isLegal(Side player, int n) {
+        if (!exists(n)) {
+            return false;
+        }
+        Side side = get(n).getSide();
+        return side == WHITE || side == player;
+    }
+
+    @Override
+    long key() {
+        return _keys[0];
+    }
+
+    @Override
+    long canonicalKey() {
+        return _keys[canonicalTransform()];
+    }
+
+    @Override
+    int canonicalTransform() {
+        int best = 0;
+        for (int t = 1; t < Symmetry.COUNT; t += 1) {
+            if (_keys[t] < _keys[best]) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Board)) {
+            return false;
+        }
+        Board other = (Board) obj;
+        if (other.size() != _size) {
+            return false;
+        }
+        for (int n = 0; n < _size * _size; n += 1) {
+            if (!get(n).equals(other.get(n))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int n = 0; n < _size * _size; n += 1) {
+            Square sq = get(n);
+            int toAdd = sq.getSide() == RED ? 1 : sq.getSide() == BLUE ? 2
+                : 0;
+            hashCode += (sq.getSpots() + toAdd) * n;
+        }
+        return hashCode;
+    }
+
+    /** Returns the rows of a cleared board with N squares on a side. */
+    private static Square[][] clearedRows(int N) {
+        Square[][] rows = new Square[N][N];
+        for (Square[] row : rows) {
+            Arrays.fill(row, Square.INITIAL);
+        }
+        return rows;
+    }
+
+    /** Returns the counts of squares of each side on a cleared board with
+     *  N squares on a side. */
+    private static int[] clearedCounts(int N) {
+        int[] counts = new int[SIDES.length];
+        counts[WHITE.ordinal()] = N * N;
+        return counts;
+    }
+
+    /** The changes made to me by one move, which are kept in copies of my
+     *  rows and counts until the move is complete.  The moves follow the
+     *  same rules, in the same order, as those of MutableBoard. */
+    private class Move {
+
+        /** A move that has not yet changed anything. */
+        Move() {
+            _newRows = _rows.clone();
+            _copied = new boolean[_size];
+            _newCounts = _counts.clone();
+            _newKeys = _keys.clone();
+            _symmetries = Symmetry.table(_size);
+        }
+
+        /** Returns the current contents of square #N. */
+        Square get(int n) {
+            return _newRows[n / _size][n % _size];
+        }
+
+        /** Store SQ in square #N, copying its row first if it is still
+         *  shared with me. */
+        void put(int n, Square sq) {
+            int r = n / _size;
+            if (!_copied[r]) {
+                _newRows[r] = _newRows[r].clone();
+                _copied[r] = true;
+            }
+            Square old = _newRows[r][n % _size];
+            _newRows[r][n % _size] = sq;
+            _newCounts[old.getSide().ordinal()] -= 1;
+            _newCounts[sq.getSide().ordinal()] += 1;
+            for (int t = 0; t < Symmetry.COUNT; t += 1) {
+                int image = _symmetries[t][n];
+                _newKeys[t] ^= squareKey(image, old) ^ squareKey(image, sq);
+            }
+        }
+
+        /** Returns true iff one side now holds every square. */
+        boolean won() {
+            return _newCounts[RED.ordinal()] == _size * _size
+                || _newCounts[BLUE.ordinal()] == _size * _size;
+        }
+
+        /** Adds spots for PLAYER at N and takes care of spilling. */
+        void addSpots(Side player, int n) {
+            Side side = get(n).getSide();
+            if (side == WHITE || side == player) {
+                int newSpotNum = get(n).getSpots() + 1;
+                if (newSpotNum > neighbors(n)) {
+                    newSpotNum = 1;
+                }
+                put(n, square(player, newSpotNum));
+                if (newSpotNum == 1 && !won()) {
+                    jump(player, n);
+                }
+            }
+        }
+
+        /** Has the spots of PLAYER at square I jump to their places. */
+        void jump(Side player, int i) {
+            int r = row(i), c = col(i);
+            if (c - 1 > 0) {
+                spill(player, sqNum(r, c - 1));
+            }
+            if (c + 1 <= _size) {
+                spill(player, sqNum(r, c + 1));
+            }
+            if (r - 1 > 0) {
+                spill(player, sqNum(r - 1, c));
+            }
+            if (r + 1 <= _size) {
+                spill(player, sqNum(r + 1, c));
+            }
+        }
+
+        /** Capture square #N for PLAYER and add a spot to it. */
+        void spill(Side player, int n) {
+            put(n, square(player, get(n).getSpots()));
+            addSpots(player, n);
+        }
+
+        /** Returns the board resulting from this move. */
+        PersistentBoard result() {
+            return new PersistentBoard(_size, _newRows, _spots + 1,
+                                       _newCounts, _newKeys);
+        }
+
+        /** My rows, of which those marked in _copied are my own and the
+         *  rest are shared with the board I was made from. */
+        private final Square[][] _newRows;
+        /** _copied[r] is true iff I have my own copy of row r. */
+        private final boolean[] _copied;
+        /** Counts of squares of each side. */
+        private final int[] _newCounts;
+        /** Keys of my images under each symmetry. */
+        private final long[] _newKeys;
+        /** The symmetry table for my size. */
+        private final int[][] _symmetries;
+    }
+
+    /** All Sides, indexed by ordinal. */
+    private static final Side[] SIDES = Side.values();
+
+    /** Number of squares on a side. */
+    private final int _size;
+    /** My contents, by row.  Rows may be shared with other boards. */
+    private final Square[][] _rows;
+    /** Total number of spots on the board. */
+    private final int _spots;
+    /** Number of squares of each side, indexed by ordinal. */
+    private final int[] _counts;
+    /** Keys of my images under each symmetry (see Symmetry). */
+    private final long[] _keys;
+    /** The index of my critical squares, or null if not yet built. */
+    private CriticalIndex _critical;
+
+}
@@ -0,0 +1,343 @@
+package jump61;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** An on-disk index of the distinct positions in a collection of
+ *  positions, such as a dataset of self-play positions written by
+ *  PositionWriter.  Positions that are symmetric images of each other
+ *  are folded together under their canonical key (see Symmetry).  For
+ *  each distinct position, the index records how many times it
+ *  occurred and the sum of its results for the side to move.
+ *
+ *  An index file is a HEADER_SIZE-byte header (MAGIC, VERSION, and
+ *  padding) followed by ENTRY_SIZE-byte entries, sorted by key, each
+ *  holding a key (8 bytes), a count (4 bytes), and a total result (4
+ *  bytes).  Lookups are binary searches of the file.  Indices are built
+ *  by a Builder, which collects positions in memory up to a limit,
+ *  writes each full batch to a sorted run file, and finally merges the
+ *  runs, so that the number of distinct positions is not limited by the
+ *  memory available.
+ *  @author Randy Shi
+ */
+class PositionIndex implements Closeable {
+
+    /** First four bytes of an index file. */
+    static final int MAGIC = 0x4a363149;
+    /** Format version. */
+    static final int VERSION = 1;
+    /** Size of the file header in bytes. */
+    static final int HEADER_SIZE = 8;
+    /** Size of an entry in bytes. */
+    static final int ENTRY_SIZE = 16;
+
+    /** The index in the file named FILENAME. */
+    PositionIndex(String fileName) throws IOException {
+        _in = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        _in.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+            || header.get() != VERSION) {
+            _in.close();
+            throw new IOException("not a position index: " + fileName);
+        }
+        _size = (_in.size() - HEADER_SIZE) / ENTRY_SIZE;
+    }
+
+    /** Returns the number of distinct positions in the index. */
+    long size() {
+        return _size;
+    }
+
+    /** Returns the number of times that position B, or a symmetric image
+     *  of it, occurs in the index. */
+    int count(Board b) throws IOException {
+        return find(b.canonicalKey()) < 0 ? 0 : _entry.getInt(8);
+    }
+
+    /** Returns the total of the results for the side to move of all
+     *  occurrences of position B, or of its symmetric images, in the
+     *  index. */
+    int result(Board b) throws IOException {
+        return find(b.canonicalKey()) < 0 ? 0 : _entry.getInt(12);
+    }
+
+    /** Returns the number of the entry with KEY, leaving its contents in
+     *  _entry, or -1 if there is none. */
+    private long find(long key) throws IOException {
+        long lo = 0, hi = _size - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            _entry.clear();
+            _in.read(_entry, HEADER_SIZE + mid * ENTRY_SIZE);
+            long midKey = _entry.getLong(0);
+            if (midKey == key) {
+                return mid;
+            } else if (midKey < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    /** Builds an index file from positions added one at a time. */
+    static class Builder {
+
+        /** A builder of the index file FILENAME that holds at most
+         *  RUNSIZE distinct positions in memory at once. */
+        Builder(String fileName, int runSize) {
+            _file = new File(fileName).getAbsoluteFile();
+            _runSize = runSize;
+            int capacity = Integer.highestOneBit(runSize) << 2;
+            _keys = new long[capacity];
+            _counts = new int[capacity];
+            _results = new int[capacity];
+        }
+
+        /** Add an occurrence of position B whose game had RESULT for the
+         *  side to move. */
+        void add(Board b, int result) throws IOException {
+            add(b.canonicalKey(), result);
+        }
+
+        /** Add all positions in POSITIONS, reading them through BOARD. */
+        void addAll(PositionReader positions, MutableBoard board)
+            throws IOException {
+            while (positions.next()) {
+                positions.copyTo(board);
+                add(board, positions.result());
+            }
+        }
+
+        /** Add an occurrence of the position whose canonical key is KEY
+         *  with RESULT. */
+        private void add(long key, int result) throws IOException {
+            int mask = _keys.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (_counts[i] != 0 && _keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (_counts[i] == 0) {
+                _keys[i] = key;
+                _distinct += 1;
+            }
+            _counts[i] += 1;
+            _results[i] += result;
+            _added += 1;
+            if (_distinct >= _runSize) {
+                writeRun();
+            }
+        }
+
+        /** Returns the number of positions added. */
+        long added() {
+            return _added;
+        }
+
+        /** Write the positions held in memory to a new sorted run file,
+         *  and clear them from memory. */
+        private void writeRun() throws IOException {
+            if (_distinct == 0) {
+                return;
+            }
+            long[] sorted = new long[_distinct];
+            int k = 0;
+            for (int i = 0; i < _keys.length; i += 1) {
+                if (_counts[i] != 0) {
+                    sorted[k] = _keys[i];
+                    k += 1;
+                }
+            }
+            Arrays.sort(sorted);
+            File run = File.createTempFile("run", ".idx",
+                                           _file.getParentFile());
+            run.deleteOnExit();
+            _runs.add(run);
+            int mask = _keys.length - 1;
+            try (DataOutputStream out = openOutput(run)) {
+                for (long key : sorted) {
+                    int i = (int) (key ^ (key >>> 32)) & mask;
+                    while (_keys[i] != key || _counts[i] == 0) {
+                        i = (i + 1) & mask;
+                    }
+                    out.writeLong(key);
+                    out.writeInt(_counts[i]);
+                    out.writeInt(_results[i]);
+                }
+            }
+            Arrays.fill(_counts, 0);
+            Arrays.fill(_results, 0);
+            _distinct = 0;
+        }
+
+        /** Merge all runs into my index file, combining the entries for
+         *  equal keys, and delete the runs.  Returns the number of
+         *  distinct positions. */
+        long finish() throws IOException {
+            writeRun();
+            PriorityQueue<Run> heads = new PriorityQueue<Run>();
+            long distinct = 0;
+            try (DataOutputStream out = openOutput(_file)) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.write(new byte[HEADER_SIZE - 5]);
+                for (File run : _runs) {
+                    Run head = new Run(run);
+                    if (head.advance()) {
+                        heads.add(head);
+                    }
+                }
+                while (!heads.isEmpty()) {
+                    long key = heads.peek()._key;
+                    int count = 0, result = 0;
+                    while (!heads.isEmpty() && heads.peek()._key == key) {
+                        Run head = heads.poll();
+                        count += head._count;
+                        result += head._result;
+                        if (head.advance()) {
+                            heads.add(head);
+                        } else {
+                            head.close();
+                        }
+                    }
+                    out.writeLong(key);
+                    out.writeInt(count);
+                    out.writeInt(result);
+                    distinct += 1;
+                }
+            } finally {
+                for (Run head : heads) {
+                    head.close();
+                }
+                for (File run : _runs) {
+                    run.delete();
+                }
+                _runs.clear();
+            }
+            return distinct;
+        }
+
+        /** Returns a buffered output stream on FILE. */
+        private static DataOutputStream openOutput(File file)
+            throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        }
+
+        /** The index file being built. */
+        private final File _file;
+        /** Maximum number of distinct positions held in memory. */
+        private final int _runSize;
+        /** Open-addressed table of the keys held in memory. */
+        private final long[] _keys;
+        /** Occurrence counts of the keys held in memory; 0 marks an empty
+         *  slot. */
+        private final int[] _counts;
+        /** Total results of the keys held in memory. */
+        private final int[] _results;
+        /** Number of distinct keys held in memory. */
+        private int _distinct;
+        /** Number of positions added. */
+        private long _added;
+        /** Sorted run files written so far. */
+        private final List<File> _runs = new ArrayList<File>();
+    }
+
+    /** A sorted run file being merged, positioned at its current
+     *  entry. */
+    private static class Run implements Comparable<Run>, Closeable {
+
+        /** A Run reading FILE, before its first entry. */
+        Run(File file) throws IOException {
+            _in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        }
+
+        /** Read the next entry.  Returns false if there is none. */
+        boolean advance() throws IOException {
+            try {
+                _key = _in.readLong();
+                _count = _in.readInt();
+                _result = _in.readInt();
+                return true;
+            } catch (EOFException excp) {
+                return false;
+            }
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            return Long.compare(_key, other._key);
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+
+        /** Source of entries. */
+        private final DataInputStream _in;
+        /** Key of the current entry. */
+        private long _key;
+        /** Count of the current entry. */
+        private int _count;
+        /** Total result of the current entry. */
+        private int _result;
+    }
+
+    /** Build the index file named ARGS[0] from the positions in the
+     *  dataset files named by ARGS[1..]. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java jump61.PositionIndex INDEX "
+                               + "DATASETS...");
+            System.exit(1);
+        }
+        Builder builder = new Builder(args[0], DEFAULT_RUN_SIZE);
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        for (int k = 1; k < args.length; k += 1) {
+            try (PositionReader positions = new PositionReader(args[k])) {
+                builder.addAll(positions, board);
+            }
+        }
+        long distinct = builder.finish();
+        System.out.printf("%d positions, %d distinct.%n", builder.added(),
+                          distinct);
+    }
+
+    /** Default maximum number of distinct positions held in memory while
+     *  building an index. */
+    static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+    /** The index file. */
+    private final FileChannel _in;
+    /** Number of entries in the file. */
+    private final long _size;
+    /** Buffer holding the last entry read. */
+    private final ByteBuffer _entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+}
@@ -0,0 +1,150 @@
+package jump61;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** A cursor over the positions in a dataset written by PositionWriter.
+ *  The file is memory-mapped, in chunks of whole records, and the cursor
+ *  reads squares straight from the mapping, so walking a dataset
+ *  creates no objects per position.  Squares are numbered as by
+ *  Board.sqNum.
+ *  @author Randy Shi
+ */
+class PositionReader implements Closeable {
+
+    /** All Sides, indexed by ordinal. */
+    private static final Side[] SIDES = Side.values();
+
+    /** Maximum size of one mapped chunk in bytes. */
+    private static final long MAX_CHUNK = 1L << 30;
+
+    /** A cursor over the dataset in the file named FILENAME, positioned
+     *  before its first position. */
+    PositionReader(String fileName) throws IOException {
+        _in = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(PositionWriter.HEADER_SIZE);
+        _in.read(header, 0);
+        header.flip();
+        if (header.remaining() < PositionWriter.HEADER_SIZE
+            || header.getInt() != PositionWriter.MAGIC
+            || header.get() != PositionWriter.VERSION) {
+            _in.close();
+            throw new IOException("not a position dataset: " + fileName);
+        }
+        _size = header.get();
+        _width = PositionWriter.recordWidth(_size);
+        _count = (_in.size() - PositionWriter.HEADER_SIZE) / _width;
+        _perChunk = Math.max(1, MAX_CHUNK / _width);
+        _index = -1;
+    }
+
+    /** Returns the board size of my positions. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns the number of positions in my file. */
+    long count() {
+        return _count;
+    }
+
+    /** Advance to the next position.  Returns false if there is none. */
+    boolean next() throws IOException {
+        return seek(_index + 1);
+    }
+
+    /** Move to position #INDEX (numbering from 0).  Returns false, and
+     *  leaves me after the last position, if there is no such
+     *  position. */
+    boolean seek(long index) throws IOException {
+        if (index < 0 || index >= _count) {
+            _index = _count;
+            return false;
+        }
+        long chunk = index / _perChunk;
+        if (_chunk == null || chunk != _chunkNumber) {
+            long start = PositionWriter.HEADER_SIZE
+                + chunk * _perChunk * _width;
+            long length = Math.min(_perChunk, _count - chunk * _perChunk)
+                * _width;
+            _chunk = _in.map(FileChannel.MapMode.READ_ONLY, start, length);
+            _chunkNumber = chunk;
+        }
+        _index = index;
+        _offset = (int) ((index - chunk * _perChunk) * _width);
+        return true;
+    }
+
+    /** Returns the index of the current position. */
+    long index() {
+        return _index;
+    }
+
+    /** Returns the number of spots on square #N of the current
+     *  position. */
+    int spots(int n) {
+        return _chunk.get(_offset + n) & 0xf;
+    }
+
+    /** Returns the color of square #N of the current position. */
+    Side side(int n) {
+        return SIDES[(_chunk.get(_offset + n) >> 4) & 0xf];
+    }
+
+    /** Returns the side to move in the current position. */
+    Side toMove() {
+        return SIDES[_chunk.get(_offset + _width - 2)];
+    }
+
+    /** Returns the result of the current position's game for the side to
+     *  move: 1 for a win, -1 for a loss, 0 if unfinished. */
+    int result() {
+        return _chunk.get(_offset + _width - 1);
+    }
+
+    /** Set BOARD to the current position. */
+    void copyTo(MutableBoard board) {
+        if (board.size() != _size) {
+            board.initializeBoard(_size);
+        }
+        for (int r = 1; r <= _size; r += 1) {
+            for (int c = 1; c <= _size; c += 1) {
+                int n = board.sqNum(r, c);
+                Square sq = Square.square(side(n), spots(n));
+                if (board.get(n) != sq) {
+                    board.set(n, sq.getSpots(), sq.getSide());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    /** The dataset file. */
+    private final FileChannel _in;
+    /** Board size of the positions. */
+    private final int _size;
+    /** Width of one record. */
+    private final int _width;
+    /** Number of positions in the file. */
+    private final long _count;
+    /** Number of positions in each mapped chunk. */
+    private final long _perChunk;
+    /** Index of the current position. */
+    private long _index;
+    /** The currently mapped chunk, or null if none. */
+    private MappedByteBuffer _chunk;
+    /** Number of the currently mapped chunk. */
+    private long _chunkNumber;
+    /** Offset of the current position within _chunk. */
+    private int _offset;
+
+}
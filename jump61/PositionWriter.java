@@ -0,0 +1,171 @@
+package jump61;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** Appends the positions of finished games to a position dataset: a
+ *  file of fixed-width records, one per position, for training and
+ *  analysis.  A dataset file starts with a HEADER_SIZE-byte header
+ *  <pre>
+ *     MAGIC(4 bytes)  VERSION  size  0  0
+ *  </pre>
+ *  followed by records of size*size + 2 bytes each: the squares in
+ *  square-number order (see Board.sqNum), packed as by
+ *  GameRecordWriter.pack; the ordinal of the side to move; and the
+ *  result of the game for the side to move (1 for a win, -1 for a loss,
+ *  0 if the game was unfinished), as a signed byte.  PositionReader
+ *  reads these files.
+ *  @author Randy Shi
+ */
+class PositionWriter implements Closeable {
+
+    /** All Sides, indexed by ordinal. */
+    private static final Side[] SIDES = Side.values();
+
+    /** First four bytes of a dataset file. */
+    static final int MAGIC = 0x4a363150;
+    /** Format version. */
+    static final int VERSION = 1;
+    /** Size of the file header in bytes. */
+    static final int HEADER_SIZE = 8;
+    /** Maximum number of positions in one game that are buffered. */
+    private static final int MAX_POSITIONS = 1 << 12;
+
+    /** A writer appending positions from N x N boards to the file named
+     *  FILENAME, which is created if necessary.  Throws IOException if
+     *  the file exists and holds positions of another size. */
+    PositionWriter(String fileName, int n) throws IOException {
+        _size = n;
+        _width = recordWidth(n);
+        _out = FileChannel.open(Paths.get(fileName),
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.READ,
+                                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (_out.size() == 0) {
+            header.putInt(MAGIC).put((byte) VERSION).put((byte) n);
+            header.clear();
+            _out.write(header, 0);
+        } else {
+            _out.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                || header.getInt() != MAGIC || header.get() != VERSION
+                || header.get() != n) {
+                _out.close();
+                throw new IOException("not a dataset of " + n + "x" + n
+                                      + " positions: " + fileName);
+            }
+        }
+        _out.position(_out.size());
+        _game = ByteBuffer.allocateDirect(_width * MAX_POSITIONS);
+    }
+
+    /** Returns the number of bytes in a record of an N x N position. */
+    static int recordWidth(int n) {
+        return n * n + 2;
+    }
+
+    /** Add B, a position in the game in progress, whose result is not yet
+     *  known.  Positions past MAX_POSITIONS in one game are ignored. */
+    void add(Board b) {
+        if (_game.remaining() < _width) {
+            return;
+        }
+        for (int r = 1; r <= _size; r += 1) {
+            for (int c = 1; c <= _size; c += 1) {
+                Square sq = b.get(b.sqNum(r, c));
+                _game.put((byte) GameRecordWriter.pack(sq));
+            }
+        }
+        _game.put((byte) b.whoseMove().ordinal());
+        _game.put((byte) 0);
+    }
+
+    /** Finish the game in progress, won by WINNER (null if it was not
+     *  finished), filling in the results of its positions and appending
+     *  them to my file. */
+    void endGame(Side winner) throws IOException {
+        _game.flip();
+        if (winner != null) {
+            for (int k = _width - 1; k < _game.limit(); k += _width) {
+                Side toMove = SIDES[_game.get(k - 1)];
+                _game.put(k, (byte) (toMove == winner ? 1 : -1));
+            }
+        }
+        while (_game.hasRemaining()) {
+            _out.write(_game);
+        }
+        _game.clear();
+    }
+
+    /** Add all positions in the game records currently in RECORDS, up to
+     *  the end of the current record, on which no moves may have been
+     *  read, as one game. */
+    void addGame(GameRecordReader records, MutableBoard board)
+        throws IOException {
+        records.start(board);
+        for (int move = records.nextMove(); move >= 0;
+             move = records.nextMove()) {
+            add(board);
+            board.addSpot(board.whoseMove(), move);
+        }
+        add(board);
+        endGame(board.getWinner());
+    }
+
+    @Override
+    public void close() throws IOException {
+        _out.close();
+    }
+
+    /** Append the positions of all games in the game-record files named
+     *  by ARGS[1..] to the dataset file named ARGS[0].  Games whose board
+     *  size differs from that of the first game are skipped. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java jump61.PositionWriter DATASET "
+                               + "RECORDS...");
+            System.exit(1);
+        }
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        PositionWriter out = null;
+        long games = 0;
+        try {
+            for (int k = 1; k < args.length; k += 1) {
+                try (GameRecordReader records =
+                     new GameRecordReader(args[k])) {
+                    while (records.next()) {
+                        if (out == null) {
+                            out = new PositionWriter(args[0],
+                                                     records.size());
+                        }
+                        if (records.size() == out._size) {
+                            out.addGame(records, board);
+                            games += 1;
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        System.out.printf("%d games added.%n", games);
+    }
+
+    /** Board size of my positions. */
+    private final int _size;
+    /** Width of one record. */
+    private final int _width;
+    /** The dataset file. */
+    private final FileChannel _out;
+    /** Records of the positions in the game in progress. */
+    private final ByteBuffer _game;
+
+}
@@ -0,0 +1,255 @@
+package jump61;
+
+import static jump61.Side.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of saved games and positions.
+ *  @author Randy Shi
+ */
+public class RecordTest {
+
+    /** Returns a new temporary file that is deleted on exit. */
+    private File tempFile() throws IOException {
+        File file = File.createTempFile("jump61", ".dat");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /** Run a Game on the commands in SCRIPT and return its final board. */
+    private Board play(String script) {
+        Game game = new Game(new StringReader(script), new StringWriter(),
+                             new StringWriter(), new StringWriter());
+        game.play();
+        return new MutableBoard(game.getBoard());
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        String name = tempFile().getPath();
+        Game game = SelfPlay.newGame();
+        game.setSize(4);
+        game.setSeed(11);
+        game.setManual(RED);
+        game.setAuto(BLUE);
+        Board board = game.getBoard();
+        for (int k = 0; k < 9; k += 1) {
+            int sq;
+            do {
+                sq = game.randInt(16);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            game.makeMove(sq);
+        }
+        game.save(name);
+        Game loaded = SelfPlay.newGame();
+        loaded.setSize(6);
+        loaded.load(name);
+        assertEquals(new MutableBoard(board),
+                     new MutableBoard(loaded.getBoard()));
+        assertEquals(board.whoseMove(), loaded.getBoard().whoseMove());
+        assertTrue(loaded.getPlayer(RED) instanceof HumanPlayer);
+        assertTrue(loaded.getPlayer(BLUE) instanceof AI);
+        assertArrayEquals(game.getHistory(), loaded.getHistory());
+        assertEquals(new MutableBoard(4), loaded.getHistoryStart());
+        for (int k = 0; k < 20; k += 1) {
+            assertEquals(game.randInt(1000), loaded.randInt(1000));
+        }
+
+        play(String.format("size 3%nset 2 2 3 b%nmanual blue%nstart%n"
+                           + "1 1%n3 3%nsave %s%nquit%n", name));
+        SavedGame saved = SavedGame.read(name);
+        assertArrayEquals(new int[] { 0, 8 }, saved.moves());
+        assertEquals(3, saved.start().get(4).getSpots());
+        MutableBoard replay = new MutableBoard(saved.start());
+        for (int move : saved.moves()) {
+            replay.addSpot(replay.whoseMove(), move);
+        }
+        assertEquals(saved.board(), replay);
+        assertFalse(saved.isAI(BLUE));
+
+        try (FileWriter out = new FileWriter(name)) {
+            out.write("not a saved game");
+        }
+        try {
+            SavedGame.read(name);
+            fail("read a corrupt saved game");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testKeyframes() throws IOException {
+        Game game = SelfPlay.playGame(4, LinearEvaluator.standard(),
+                                      LinearEvaluator.standard(), 13);
+        Board end = new MutableBoard(game.getBoard());
+        int[] moves = game.getHistory();
+        assertTrue(moves.length > Defaults.KEYFRAME_INTERVAL);
+        GameHistory history = new GameHistory(new MutableBoard(4), 4);
+        MutableBoard replay = new MutableBoard(4);
+        MutableBoard board = new MutableBoard(2);
+        for (int k = 0; k <= moves.length; k += 1) {
+            assertTrue(history.seek(k, board) < 4);
+            assertEquals(replay, board);
+            if (k < moves.length) {
+                replay.addSpot(replay.whoseMove(), moves[k]);
+                history.add(moves[k], replay);
+            }
+        }
+        assertEquals(moves.length / 4 + 1, history.numKeyframes());
+
+        String name = tempFile().getPath();
+        game.seek(7);
+        game.save(name);
+        MutableBoard start = new MutableBoard(game.getHistoryStart());
+        for (int move : moves) {
+            start.addSpot(start.whoseMove(), move);
+        }
+        assertEquals(end, start);
+        Game loaded = SelfPlay.newGame();
+        loaded.load(name);
+        assertEquals(7, loaded.getPly());
+        assertEquals(new MutableBoard(game.getBoard()),
+                     new MutableBoard(loaded.getBoard()));
+        loaded.seek(moves.length);
+        assertEquals(end, new MutableBoard(loaded.getBoard()));
+        loaded.seek(3);
+        Board third = new MutableBoard(loaded.getBoard());
+        int next = -1;
+        for (int sq = 0; sq < 16; sq += 1) {
+            if (third.isLegal(third.whoseMove(), sq) && sq != moves[3]) {
+                next = sq;
+                break;
+            }
+        }
+        loaded.makeMove(next);
+        assertEquals(4, loaded.getHistory().length);
+        assertEquals(next, loaded.getHistory()[3]);
+        try {
+            loaded.seek(5);
+            fail("seek past the end");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testStatefulRandom() {
+        Random standard = new Random(12);
+        StatefulRandom random = new StatefulRandom(12);
+        for (int k = 0; k < 10; k += 1) {
+            assertEquals(standard.nextInt(100), random.nextInt(100));
+        }
+        long state = random.state();
+        long next = random.nextLong();
+        random.setSeed(5);
+        random.setState(state);
+        assertEquals(next, random.nextLong());
+    }
+
+    @Test
+    public void testGameRecords() throws IOException {
+        File file = tempFile();
+        String name = file.getPath();
+        Board first = play(String.format("record %s%nseed 7%nsize 4%n"
+                                         + "auto red%nstart%nquit%n", name));
+        Board second = play(String.format("record %s%nsize 3%n"
+                                          + "set 2 2 3 b%nmanual blue%n"
+                                          + "start%n1 1%n2 2%nquit%n",
+                                          name));
+        try (GameRecordReader records = new GameRecordReader(name)) {
+            MutableBoard board = new MutableBoard(2);
+            assertTrue(records.next());
+            assertEquals(4, records.size());
+            assertEquals(7, records.seed());
+            assertTrue(records.isAI(RED));
+            assertTrue(records.isAI(BLUE));
+            assertTrue(records.replay(board) > 0);
+            assertEquals(first, board);
+            assertNotNull(board.getWinner());
+            assertTrue(records.next());
+            assertFalse(records.isAI(BLUE));
+            assertEquals(2, records.replay(board));
+            assertEquals(second, board);
+            assertFalse(records.next());
+        }
+    }
+
+    @Test
+    public void testPositionDataset() throws IOException {
+        File recordFile = tempFile(), dataFile = tempFile();
+        dataFile.delete();
+        Board last = play(String.format("record %s%nsize 4%nauto red%n"
+                                        + "start%nquit%n", recordFile));
+        MutableBoard board = new MutableBoard(2);
+        int moves;
+        try (GameRecordReader records =
+             new GameRecordReader(recordFile.getPath());
+             PositionWriter out =
+             new PositionWriter(dataFile.getPath(), 4)) {
+            assertTrue(records.next());
+            out.addGame(records, board);
+        }
+        try (GameRecordReader records =
+             new GameRecordReader(recordFile.getPath())) {
+            records.next();
+            moves = records.replay(board);
+        }
+        try (PositionReader positions =
+             new PositionReader(dataFile.getPath())) {
+            assertEquals(4, positions.size());
+            assertEquals(moves + 1, positions.count());
+            Side winner = last.getWinner();
+            while (positions.next()) {
+                assertEquals(positions.toMove() == winner ? 1 : -1,
+                             positions.result());
+            }
+            assertTrue(positions.seek(moves));
+            positions.copyTo(board);
+            assertEquals(last, board);
+            assertTrue(positions.seek(0));
+            assertEquals(Side.WHITE, positions.side(5));
+            assertEquals(1, positions.spots(5));
+        }
+    }
+
+    @Test
+    public void testPositionIndex() throws IOException {
+        File indexFile = tempFile();
+        MutableBoard b = new MutableBoard(5);
+        b.set(1, 2, RED);
+        b.set(7, 3, BLUE);
+        PositionIndex.Builder builder =
+            new PositionIndex.Builder(indexFile.getPath(), 2);
+        for (int t = 0; t < Symmetry.COUNT; t += 1) {
+            builder.add(Symmetry.transform(b, t), t % 2 == 0 ? 1 : -1);
+        }
+        MutableBoard other = new MutableBoard(5);
+        other.set(12, 2, RED);
+        builder.add(other, 1);
+        builder.add(new MutableBoard(5), 0);
+        builder.add(other, 1);
+        assertEquals(11, builder.added());
+        assertEquals(3, builder.finish());
+        try (PositionIndex index =
+             new PositionIndex(indexFile.getPath())) {
+            assertEquals(3, index.size());
+            assertEquals(8, index.count(Symmetry.transform(b, 3)));
+            assertEquals(0, index.result(b));
+            assertEquals(2, index.count(other));
+            assertEquals(2, index.result(other));
+            assertEquals(1, index.count(new MutableBoard(5)));
+            other.set(13, 2, RED);
+            assertEquals(0, index.count(other));
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+package jump61;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static jump61.GameException.error;
+import static jump61.Side.*;
+
+/** The state of a Game, as written by the save command and read by the
+ *  load command: its board, the side to move, which players are AIs,
+ *  the state of its random-number generator, and its history: the moves
+ *  made since the board was last set up, with keyframes (see
+ *  GameHistory), and the point in the history that the board shows.  A
+ *  saved game is a small binary file of the form
+ *  <pre>
+ *     MAGIC(4 bytes)  VERSION  size  toMove  players  interval
+ *     seed(8 bytes)  randomState(8 bytes)  numMoves(2 bytes)
+ *     ply(2 bytes)
+ *     size*size packed squares of the current board
+ *     numMoves / interval + 1 keyframes of size*size packed squares
+ *     numMoves moves
+ *  </pre>
+ *  where toMove is the ordinal of the side to move, players has bit 0
+ *  set iff red is an AI and bit 1 set iff blue is, interval is the
+ *  number of moves between keyframes, ply is the number of moves of the
+ *  history that lead to the current board, and each move is a square
+ *  number in one byte.  Keyframe #J, the board after J * interval
+ *  moves, is at a fixed offset, so the keyframes need no separate
+ *  index.  Squares are packed as by GameRecordWriter.pack.  Multi-byte
+ *  numbers are big-endian.  Files are read and written whole, through a
+ *  single buffer and a FileChannel, so that loading one costs little
+ *  more than opening it.
+ *  @author Randy Shi
+ */
+class SavedGame {
+
+    /** First four bytes of a saved game: "J61G". */
+    static final int MAGIC = 0x4a363147;
+    /** Format version. */
+    static final int VERSION = 2;
+    /** Length of the fixed part of a saved game, in bytes. */
+    static final int HEADER_SIZE = 4 + 5 + 8 + 8 + 2 + 2;
+    /** Greatest number of moves in a saved game. */
+    static final int MAX_MOVES = (1 << Short.SIZE) - 1;
+
+    /** A saved game whose board is BOARD, reached by the first PLY moves
+     *  of HISTORY, in which red and blue are AIs iff REDAI and BLUEAI,
+     *  with random seed SEED and generator state RANDOMSTATE.  Copies
+     *  BOARD, but not HISTORY. */
+    SavedGame(Board board, GameHistory history, int ply, boolean redAI,
+              boolean blueAI, long seed, long randomState) {
+        _board = new MutableBoard(board);
+        _history = history;
+        _ply = ply;
+        _redAI = redAI;
+        _blueAI = blueAI;
+        _seed = seed;
+        _randomState = randomState;
+    }
+
+    /** Returns the board. */
+    Board board() {
+        return _board;
+    }
+
+    /** Returns the history. */
+    GameHistory history() {
+        return _history;
+    }
+
+    /** Returns the number of moves of history() that lead to
+     *  board(). */
+    int ply() {
+        return _ply;
+    }
+
+    /** Returns the board before the first move of history(). */
+    Board start() {
+        MutableBoard start = new MutableBoard(_board.size());
+        _history.seek(0, start);
+        return start;
+    }
+
+    /** Returns the moves of history(), as square numbers. */
+    int[] moves() {
+        return _history.moves();
+    }
+
+    /** Returns true iff the player of SIDE is an AI. */
+    boolean isAI(Side side) {
+        return side == RED ? _redAI : _blueAI;
+    }
+
+    /** Returns the last random seed given. */
+    long seed() {
+        return _seed;
+    }
+
+    /** Returns the state of the random-number generator (see
+     *  StatefulRandom). */
+    long randomState() {
+        return _randomState;
+    }
+
+    /** Write me to the file named FILENAME, replacing its contents.
+     *  Throws a GameException if my history has more than MAX_MOVES
+     *  moves. */
+    void write(String fileName) throws IOException {
+        int numMoves = _history.length();
+        if (numMoves > MAX_MOVES) {
+            throw error("too many moves to save");
+        }
+        int size = _board.size(), area = size * size;
+        ByteBuffer buffer =
+            ByteBuffer.allocate(HEADER_SIZE
+                                + (1 + _history.numKeyframes()) * area
+                                + numMoves);
+        buffer.putInt(MAGIC).put((byte) VERSION).put((byte) size)
+            .put((byte) _board.whoseMove().ordinal())
+            .put((byte) ((_redAI ? 1 : 0) | (_blueAI ? 2 : 0)))
+            .put((byte) _history.interval())
+            .putLong(_seed).putLong(_randomState)
+            .putShort((short) numMoves).putShort((short) _ply);
+        putSquares(buffer, _board);
+        _history.write(buffer);
+        buffer.flip();
+        try (FileChannel out =
+             FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE,
+                              StandardOpenOption.CREATE,
+                              StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+
+    /** Returns the saved game in the file named FILENAME.  Throws a
+     *  GameException if the file is not a valid saved game. */
+    static SavedGame read(String fileName) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel in =
+             FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (in.size() > HEADER_SIZE + (MAX_MOVES + 2) * MAX_AREA
+                + MAX_MOVES) {
+                throw error("%s is not a saved game", fileName);
+            }
+            buffer = ByteBuffer.allocate((int) in.size());
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                continue;
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC
+            || buffer.get() != VERSION) {
+            throw error("%s is not a saved game", fileName);
+        }
+        int size = buffer.get(), toMove = buffer.get(),
+            players = buffer.get(), interval = buffer.get();
+        long seed = buffer.getLong(), randomState = buffer.getLong();
+        int numMoves = buffer.getShort() & 0xffff;
+        int ply = buffer.getShort() & 0xffff;
+        int area = size * size;
+        if (size < 2 || size > Defaults.MAX_BOARD_SIZE || interval < 1
+            || (players & ~3) != 0 || ply > numMoves
+            || buffer.remaining()
+               != (numMoves / interval + 2) * area + numMoves) {
+            throw error("%s is corrupt", fileName);
+        }
+        MutableBoard board = new MutableBoard(size);
+        getSquares(buffer, board, fileName);
+        if (toMove != board.whoseMove().ordinal()) {
+            throw error("%s is corrupt", fileName);
+        }
+        GameHistory history =
+            GameHistory.read(buffer, size, interval, numMoves, fileName);
+        return new SavedGame(board, history, ply, (players & 1) != 0,
+                             (players & 2) != 0, seed, randomState);
+    }
+
+    /** Put the packed squares of B into BUFFER. */
+    private static void putSquares(ByteBuffer buffer, Board b) {
+        for (int n = 0; n < b.size() * b.size(); n += 1) {
+            buffer.put((byte) GameRecordWriter.pack(b.get(n)));
+        }
+    }
+
+    /** Set the squares of B from the packed squares next in BUFFER, read
+     *  from the file named FILENAME.  Throws a GameException if they do
+     *  not describe a possible board. */
+    private static void getSquares(ByteBuffer buffer, MutableBoard b,
+                                   String fileName) {
+        for (int n = 0; n < b.size() * b.size(); n += 1) {
+            int code = buffer.get() & 0xff;
+            int side = code >> 4, spots = code & 0xf;
+            if (side >= Side.values().length || spots < 1
+                || spots > b.neighbors(n)
+                || side == WHITE.ordinal() && spots != 1) {
+                throw error("%s is corrupt", fileName);
+            }
+            Square sq = GameRecordWriter.unpack(code);
+            if (b.get(n) != sq) {
+                b.set(n, sq.getSpots(), sq.getSide());
+            }
+        }
+    }
+
+    /** Greatest number of squares on a board. */
+    private static final int MAX_AREA =
+        Defaults.MAX_BOARD_SIZE * Defaults.MAX_BOARD_SIZE;
+
+    /** The board. */
+    private final MutableBoard _board;
+    /** The moves that led to _board, and perhaps more. */
+    private final GameHistory _history;
+    /** Number of moves of _history that lead to _board. */
+    private final int _ply;
+    /** True iff red is an AI. */
+    private final boolean _redAI;
+    /** True iff blue is an AI. */
+    private final boolean _blueAI;
+    /** The last seed given to the random-number generator. */
+    private final long _seed;
+    /** The state of the random-number generator. */
+    private final long _randomState;
+
+}
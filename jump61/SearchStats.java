@@ -0,0 +1,163 @@
+package jump61;
+
+/** Counts of the work done by one AI search: positions visited, static
+ *  evaluations, board copies, cutoffs, the deepest ply reached, and the
+ *  time taken.  Counting costs one increment of a field per event, so
+ *  searches always keep statistics; only reporting them is optional.
+ *  @author Randy Shi
+ */
+class SearchStats {
+
+    /** Clear my counts and start timing a search. */
+    void start() {
+        _nodes = _quiescenceNodes = _evaluations = _copies = 0;
+        _cutoffs = _firstMoveCutoffs = 0;
+        _depth = _maxDepth = 0;
+        _nanos = 0;
+        _startTime = System.nanoTime();
+    }
+
+    /** Stop timing the current search. */
+    void stop() {
+        _nanos = System.nanoTime() - _startTime;
+    }
+
+    /** Record that the search is searching to a nominal (full-width)
+     *  depth of DEPTH plies. */
+    void setDepth(int depth) {
+        _depth = depth;
+    }
+
+    /** Record a visit to a position at distance PLY from the root. */
+    void addNode(int ply) {
+        _nodes += 1;
+        if (ply > _maxDepth) {
+            _maxDepth = ply;
+        }
+    }
+
+    /** Record a visit to a position past the full-width depth at distance
+     *  PLY from the root. */
+    void addQuiescenceNode(int ply) {
+        addNode(ply);
+        _quiescenceNodes += 1;
+    }
+
+    /** Record a static evaluation. */
+    void addEvaluation() {
+        _evaluations += 1;
+    }
+
+    /** Record a copy of a board. */
+    void addCopy() {
+        _copies += 1;
+    }
+
+    /** Record a cutoff, which was caused by the first move tried iff
+     *  FIRST. */
+    void addCutoff(boolean first) {
+        _cutoffs += 1;
+        if (first) {
+            _firstMoveCutoffs += 1;
+        }
+    }
+
+    /** Returns the number of positions visited. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Returns the number of positions visited past the full-width
+     *  depth. */
+    long quiescenceNodes() {
+        return _quiescenceNodes;
+    }
+
+    /** Returns the number of static evaluations. */
+    long evaluations() {
+        return _evaluations;
+    }
+
+    /** Returns the number of board copies. */
+    long copies() {
+        return _copies;
+    }
+
+    /** Returns the number of cutoffs. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Returns the number of cutoffs caused by the first move tried. */
+    long firstMoveCutoffs() {
+        return _firstMoveCutoffs;
+    }
+
+    /** Returns the nominal (full-width) depth of the search. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Returns the greatest distance from the root of any position
+     *  visited. */
+    int maxDepth() {
+        return _maxDepth;
+    }
+
+    /** Returns the duration of the search in nanoseconds. */
+    long nanos() {
+        return _nanos;
+    }
+
+    /** Returns the number of positions visited per second. */
+    double nodesPerSecond() {
+        return _nanos == 0 ? 0 : _nodes * NANOS_PER_SECOND / _nanos;
+    }
+
+    /** Returns the effective branching factor: the number of children per
+     *  position that a uniform tree of the nominal depth with the same
+     *  number of positions would have. */
+    double branchingFactor() {
+        return _depth <= 0 ? 0 : Math.pow(_nodes, 1.0 / _depth);
+    }
+
+    /** Returns my counts as a one-line report. */
+    @Override
+    public String toString() {
+        return String.format("info depth %d seldepth %d nodes %d qnodes %d "
+                             + "evals %d copies %d cutoffs %d first %d "
+                             + "time %d nps %.0f ebf %.2f",
+                             _depth, _maxDepth, _nodes, _quiescenceNodes,
+                             _evaluations, _copies, _cutoffs,
+                             _firstMoveCutoffs,
+                             _nanos / NANOS_PER_MILLISECOND,
+                             nodesPerSecond(), branchingFactor());
+    }
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLISECOND = 1000000;
+
+    /** Number of positions visited. */
+    private long _nodes;
+    /** Number of positions visited past the full-width depth. */
+    private long _quiescenceNodes;
+    /** Number of static evaluations. */
+    private long _evaluations;
+    /** Number of board copies. */
+    private long _copies;
+    /** Number of cutoffs. */
+    private long _cutoffs;
+    /** Number of cutoffs caused by the first move tried. */
+    private long _firstMoveCutoffs;
+    /** Nominal depth of the search. */
+    private int _depth;
+    /** Greatest distance from the root reached. */
+    private int _maxDepth;
+    /** Value of System.nanoTime() at the start of the search. */
+    private long _startTime;
+    /** Duration of the search, once stopped. */
+    private long _nanos;
+
+}
@@ -0,0 +1,56 @@
+package jump61;
+
+import java.io.StringReader;
+import java.io.Writer;
+
+import static jump61.Side.*;
+
+/** Plays games between AI players with no user interface, for tools that
+ *  need many games quickly (such as Tuner).  Games are driven through
+ *  Game's direct interface rather than text commands, so nearly all of
+ *  their time goes to search.
+ *  @author Randy Shi
+ */
+class SelfPlay {
+
+    /** Number of random moves made at the start of each game, so that
+     *  games with different seeds differ. */
+    static final int OPENING_MOVES = 2;
+
+    /** Returns a new Game that has no input and discards its output. */
+    static Game newGame() {
+        return new Game(new StringReader(""), Writer.nullWriter(),
+                        Writer.nullWriter(), Writer.nullWriter());
+    }
+
+    /** Play a game on an N x N board between AI players using evaluators
+     *  RED and BLUE, starting with OPENING_MOVES random moves chosen
+     *  using SEED.  Returns the winner. */
+    static Side play(int n, Evaluator red, Evaluator blue, long seed) {
+        return playGame(n, red, blue, seed).getBoard().getWinner();
+    }
+
+    /** Play a game as for play(N, RED, BLUE, SEED), and return it,
+     *  finished. */
+    static Game playGame(int n, Evaluator red, Evaluator blue, long seed) {
+        Game game = newGame();
+        game.setSize(n);
+        game.setSeed(seed);
+        game.setAuto(RED);
+        game.setAuto(BLUE);
+        ((AI) game.getPlayer(RED)).setEvaluator(red);
+        ((AI) game.getPlayer(BLUE)).setEvaluator(blue);
+        Board board = game.getBoard();
+        for (int k = 0; k < OPENING_MOVES && board.getWinner() == null;
+             k += 1) {
+            int sq;
+            do {
+                sq = game.randInt(n * n);
+            } while (!board.isLegal(board.whoseMove(), sq));
+            game.makeMove(sq);
+        }
+        game.playToEnd();
+        return game;
+    }
+
+}
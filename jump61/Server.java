@@ -0,0 +1,185 @@
+package jump61;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ucb.util.CommandArgs;
+
+/** Hosts many independent sessions of Jump61 in one JVM.  Each session
+ *  is a Game that reads commands from its own Reader and writes prompts,
+ *  output, and errors to its own Writer, just as a game run by Main does
+ *  with the standard input and output.  Each session runs on its own
+ *  thread: a virtual thread where the Java runtime provides them, and
+ *  otherwise one from a cached pool.  Sessions spend most of their time
+ *  waiting for input.  The AI players of all sessions compute their
+ *  moves on one shared pool with a fixed number of threads, so searches
+ *  cannot oversubscribe the processors however many sessions there are.
+ *  @author Randy Shi
+ */
+public class Server implements Closeable {
+
+    /** Default port on which to listen for sessions. */
+    static final int DEFAULT_PORT = 6161;
+
+    /** A server whose AI players share THREADS threads. */
+    Server(int threads) {
+        _compute = Executors.newFixedThreadPool(threads, DAEMONS);
+        _sessions = newSessionExecutor();
+    }
+
+    /** Start a session that reads commands from INPUT and writes all its
+     *  output to OUTPUT, closing OUTPUT when it ends.  Returns the exit
+     *  code of the session's Game, once it is done. */
+    Future<Integer> serve(Reader input, Writer output) {
+        return _sessions.submit(() -> {
+            _active.incrementAndGet();
+            try {
+                Game game = new Game(input, output, output, output);
+                game.setComputePool(_compute);
+                return game.play();
+            } finally {
+                _active.decrementAndGet();
+                _completed.incrementAndGet();
+            }
+        });
+    }
+
+    /** Start a session that communicates through SOCKET, closing SOCKET
+     *  when it ends.  Returns the session's exit code, once it is done. */
+    Future<Integer> serve(Socket socket) throws IOException {
+        Reader input = new InputStreamReader(socket.getInputStream(),
+                                             StandardCharsets.UTF_8);
+        Writer output =
+            new BufferedWriter(new OutputStreamWriter(
+                socket.getOutputStream(), StandardCharsets.UTF_8));
+        return _sessions.submit(() -> {
+            try {
+                return serve(input, output).get();
+            } finally {
+                socket.close();
+            }
+        });
+    }
+
+    /** Start a session for each connection to LISTENER until LISTENER is
+     *  closed. */
+    void listen(ServerSocket listener) throws IOException {
+        while (!listener.isClosed()) {
+            Socket socket;
+            try {
+                socket = listener.accept();
+            } catch (SocketException excp) {
+                if (listener.isClosed()) {
+                    break;
+                }
+                throw excp;
+            }
+            socket.setTcpNoDelay(true);
+            serve(socket);
+        }
+    }
+
+    /** Returns the number of sessions now running. */
+    int active() {
+        return _active.get();
+    }
+
+    /** Returns the number of sessions that have ended. */
+    int completed() {
+        return _completed.get();
+    }
+
+    /** Stop accepting sessions and stop my threads, interrupting any
+     *  sessions still running. */
+    @Override
+    public void close() {
+        _sessions.shutdownNow();
+        _compute.shutdownNow();
+    }
+
+    /** Returns an executor that runs each task on a new virtual thread,
+     *  if the Java runtime supports them, and otherwise on a daemon
+     *  thread from a cached pool.  The executor is found reflectively, so
+     *  that this class compiles and runs on runtimes without virtual
+     *  threads. */
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(DAEMONS);
+        }
+    }
+
+    /** Returns true iff newSessionExecutor provides virtual threads. */
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException excp) {
+            return false;
+        }
+    }
+
+    /** Serve sessions over TCP.  ARGS0 may contain --port=N (default
+     *  DEFAULT_PORT) and --threads=N (threads for AI players; default
+     *  the number of processors). */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--port=(\\d+){0,1} --threads=(\\d+){0,1}",
+                            args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Server [--port=N] "
+                               + "[--threads=N]");
+            System.exit(1);
+        }
+        int threads = Tuner.intArg(args, "--threads",
+                                   Runtime.getRuntime()
+                                   .availableProcessors());
+        try (Server server = new Server(threads);
+             ServerSocket listener =
+             new ServerSocket(Tuner.intArg(args, "--port", DEFAULT_PORT),
+                              BACKLOG)) {
+            System.err.printf("%s serving on port %d (%s threads, %d "
+                              + "AI threads)%n", Defaults.VERSION,
+                              listener.getLocalPort(),
+                              hasVirtualThreads() ? "virtual" : "pooled",
+                              threads);
+            server.listen(listener);
+        }
+    }
+
+    /** Length of the queue of connections waiting to be accepted. */
+    static final int BACKLOG = 4096;
+
+    /** Makes daemon threads, which do not keep the JVM running. */
+    private static final ThreadFactory DAEMONS = (task) -> {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    /** Runs sessions. */
+    private final ExecutorService _sessions;
+    /** Runs the searches of AI players. */
+    private final ExecutorService _compute;
+    /** Number of sessions now running. */
+    private final AtomicInteger _active = new AtomicInteger();
+    /** Number of sessions ended. */
+    private final AtomicInteger _completed = new AtomicInteger();
+
+}
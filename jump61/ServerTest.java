@@ -0,0 +1,70 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests of the multi-game server.
+ *  @author Randy Shi
+ */
+public class ServerTest {
+
+    /** Milliseconds to wait for an acceptor thread to stop. */
+    private static final long ACCEPTOR_TIMEOUT = 10000;
+
+    @Test
+    public void testSession() throws Exception {
+        try (Server server = new Server(1)) {
+            StringWriter output = new StringWriter();
+            int exit = server.serve(new StringReader("size 3\nauto red\n"
+                                                     + "start\nquit\n"),
+                                    output).get();
+            assertEquals(0, exit);
+            assertTrue(output.toString().contains("wins."));
+            assertEquals(1, server.completed());
+            assertEquals(0, server.active());
+        }
+    }
+
+    @Test
+    public void testLoopback() throws IOException, InterruptedException {
+        InetAddress host = InetAddress.getLoopbackAddress();
+        AtomicReference<IOException> error = new AtomicReference<>();
+        Thread acceptor;
+        try (Server server = new Server(2);
+             ServerSocket listener = new ServerSocket(0, 0, host)) {
+            acceptor = new Thread(() -> {
+                try {
+                    server.listen(listener);
+                } catch (IOException excp) {
+                    error.set(excp);
+                }
+            });
+            acceptor.start();
+            StringWriter report = new StringWriter();
+            new LoadGenerator(host, listener.getLocalPort(), 8, 3, 38)
+                .run(new PrintWriter(report));
+            assertTrue(report.toString(),
+                       report.toString().contains("8 sessions (0 failed)"));
+        }
+        acceptor.join(ACCEPTOR_TIMEOUT);
+        assertFalse("acceptor did not stop", acceptor.isAlive());
+        assertNull(error.get());
+    }
+
+    @Test
+    public void testPercentile() {
+        long[] sorted = { 1000000, 2000000, 3000000, 4000000 };
+        assertEquals(2.0, LoadGenerator.percentile(sorted, 50), 1e-9);
+        assertEquals(4.0, LoadGenerator.percentile(sorted, 99), 1e-9);
+        assertEquals(1.0, LoadGenerator.percentile(sorted, 0), 1e-9);
+    }
+
+}
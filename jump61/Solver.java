@@ -0,0 +1,200 @@
+package jump61;
+
+import java.util.Arrays;
+
+/** A depth-first proof-number (df-pn) solver, which tries to prove that
+ *  the side to move in a position can force a win (the position is
+ *  proven) or that the opponent can (it is disproven).  Rather than
+ *  searching to a fixed depth, it follows the lines that look cheapest
+ *  to prove or disprove, which suits the long forced chains of spills
+ *  common in endgames.  The proof and disproof numbers of positions it
+ *  has seen are kept in a table of fixed size, indexed by canonical key,
+ *  and each solve visits at most a given number of positions, so that
+ *  its time and memory are bounded.  A position in which the side to
+ *  move has an instant win (see Board.instantWin) counts as proven
+ *  without being searched further.
+ *  @author Randy Shi
+ */
+final class Solver {
+
+    /** Result of solve: the side to move can force a win. */
+    static final int PROVEN = 1;
+    /** Result of solve: the side to move cannot avoid losing. */
+    static final int DISPROVEN = -1;
+    /** Result of solve: the budget ran out first. */
+    static final int UNKNOWN = 0;
+
+    /** A solver whose table has 2**LOGSIZE entries. */
+    Solver(int logSize) {
+        int size = 1 << logSize;
+        _mask = size - 1;
+        _keys = new long[size];
+        _proofs = new int[size];
+        _disproofs = new int[size];
+        clear();
+    }
+
+    /** Forget all positions in my table. */
+    void clear() {
+        Arrays.fill(_proofs, -1);
+    }
+
+    /** Try to prove or disprove B, visiting at most about BUDGET
+     *  positions, and return PROVEN, DISPROVEN, or UNKNOWN.  Entries from
+     *  earlier solves are kept and reused. */
+    int solve(Board b, long budget) {
+        _nodes = 0;
+        _budget = budget;
+        _move = -1;
+        if (b.getWinner() != null) {
+            return DISPROVEN;
+        }
+        _move = b.instantWin(b.whoseMove());
+        if (_move >= 0) {
+            return PROVEN;
+        }
+        _root = b;
+        search(b, INFINITY, INFINITY);
+        _root = null;
+        return _proof == 0 ? PROVEN : _disproof == 0 ? DISPROVEN : UNKNOWN;
+    }
+
+    /** Returns a winning move found by the last solve, if it returned
+     *  PROVEN, and otherwise -1. */
+    int move() {
+        return _move;
+    }
+
+    /** Returns the number of positions visited by the last solve. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Search B, which is not over, until its proof number reaches
+     *  PROOFLIMIT, its disproof number reaches DISPROOFLIMIT, or the
+     *  budget is spent.  Leaves B's final numbers in _proof and _disproof
+     *  and in the table. */
+    private void search(Board b, int proofLimit, int disproofLimit) {
+        Side player = b.whoseMove();
+        int area = b.size() * b.size();
+        int[] moves = new int[area];
+        Board[] children = new Board[area];
+        int[] proofs = new int[area], disproofs = new int[area];
+        int numMoves = 0;
+        for (int n = 0; n < area; n += 1) {
+            if (b.isLegal(player, n)) {
+                Board child = new MutableBoard(b);
+                child.addSpot(player, n);
+                moves[numMoves] = n;
+                children[numMoves] = child;
+                initialize(child);
+                proofs[numMoves] = _proof;
+                disproofs[numMoves] = _disproof;
+                numMoves += 1;
+            }
+        }
+        int proof, disproof;
+        while (true) {
+            int best = 0, second = INFINITY;
+            proof = INFINITY;
+            disproof = 0;
+            for (int i = 0; i < numMoves; i += 1) {
+                disproof = (int) Math.min(INFINITY,
+                                          (long) disproof + proofs[i]);
+                if (disproofs[i] < proof) {
+                    second = proof;
+                    proof = disproofs[i];
+                    best = i;
+                } else if (disproofs[i] < second) {
+                    second = disproofs[i];
+                }
+            }
+            if (proof >= proofLimit || disproof >= disproofLimit
+                || _nodes >= _budget) {
+                break;
+            }
+            int childProofLimit =
+                (int) Math.min(INFINITY, (long) disproofLimit - disproof
+                               + proofs[best]);
+            int childDisproofLimit = Math.min(proofLimit, second + 1);
+            search(children[best], childProofLimit, childDisproofLimit);
+            proofs[best] = _proof;
+            disproofs[best] = _disproof;
+        }
+        if (b == _root && proof == 0) {
+            for (int i = 0; i < numMoves; i += 1) {
+                if (disproofs[i] == 0) {
+                    _move = moves[i];
+                    break;
+                }
+            }
+        }
+        store(b.canonicalKey(), proof, disproof);
+        _proof = proof;
+        _disproof = disproof;
+    }
+
+    /** Set _proof and _disproof to the numbers of B, a position just
+     *  reached: from the table if it is there, exactly if B is over or
+     *  has an instant win, and otherwise to 1. */
+    private void initialize(Board b) {
+        _nodes += 1;
+        if (b.getWinner() != null) {
+            _proof = INFINITY;
+            _disproof = 0;
+            return;
+        }
+        long key = b.canonicalKey();
+        int i = (int) (key ^ (key >>> 32)) & _mask;
+        if (_keys[i] == key && _proofs[i] >= 0) {
+            _proof = _proofs[i];
+            _disproof = _disproofs[i];
+        } else if (b.instantWin(b.whoseMove()) >= 0) {
+            _proof = 0;
+            _disproof = INFINITY;
+        } else {
+            _proof = _disproof = 1;
+        }
+    }
+
+    /** Record that the position whose canonical key is KEY has proof
+     *  number PROOF and disproof number DISPROOF.  An entry for a solved
+     *  position is replaced only by another solved one. */
+    private void store(long key, int proof, int disproof) {
+        int i = (int) (key ^ (key >>> 32)) & _mask;
+        boolean solved = proof == 0 || disproof == 0;
+        if (_keys[i] == key || solved || _proofs[i] < 0
+            || (_proofs[i] != 0 && _disproofs[i] != 0)) {
+            _keys[i] = key;
+            _proofs[i] = proof;
+            _disproofs[i] = disproof;
+        }
+    }
+
+    /** Proof or disproof number of a position that cannot be proven or
+     *  disproven. */
+    private static final int INFINITY = 1 << 30;
+
+    /** Mask selecting a table index from a hash. */
+    private final int _mask;
+    /** Canonical keys of the positions in the table. */
+    private final long[] _keys;
+    /** Proof numbers of the positions in the table, or -1 for unused
+     *  entries. */
+    private final int[] _proofs;
+    /** Disproof numbers of the positions in the table. */
+    private final int[] _disproofs;
+    /** The position being solved. */
+    private Board _root;
+    /** Winning move found by the last solve, or -1. */
+    private int _move;
+    /** Number of positions visited by the current solve. */
+    private long _nodes;
+    /** Maximum number of positions to visit in the current solve. */
+    private long _budget;
+    /** Proof number of the position last searched or initialized. */
+    private int _proof;
+    /** Disproof number of the position last searched or initialized. */
+    private int _disproof;
+
+}
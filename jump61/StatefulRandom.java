@@ -0,0 +1,60 @@
+package jump61;
+
+import java.util.Random;
+
+/** A Random whose internal state can be read and restored, so that a
+ *  saved game resumes with the same sequence of random numbers.  It
+ *  uses the same linear congruential generator as java.util.Random, and
+ *  so produces the same numbers from the same seed.
+ *  @author Randy Shi
+ */
+class StatefulRandom extends Random {
+
+    /** A generator with a seed that is unlikely to equal that of any
+     *  other. */
+    StatefulRandom() {
+        super();
+    }
+
+    /** A generator with seed SEED. */
+    StatefulRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        _state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /** Returns my internal state, which determines all the numbers I
+     *  will produce. */
+    synchronized long state() {
+        return _state;
+    }
+
+    /** Set my internal state to STATE, as returned by state(). */
+    synchronized void setState(long state) {
+        _state = state & MASK;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        _state = (_state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (_state >>> (STATE_BITS - bits));
+    }
+
+    /** Multiplier of the generator, as in java.util.Random. */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    /** Addend of the generator, as in java.util.Random. */
+    private static final long ADDEND = 0xBL;
+    /** Number of bits of state. */
+    private static final int STATE_BITS = 48;
+    /** Mask selecting the bits of the state. */
+    private static final long MASK = (1L << STATE_BITS) - 1;
+
+    /** The internal state.  Not initialized here, since Random's
+     *  constructor sets it through setSeed. */
+    private long _state;
+
+}
@@ -0,0 +1,330 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import ucb.util.CommandArgs;
+
+import static jump61.GameException.error;
+
+/** A suite of tactical problems, each a position, the moves that solve
+ *  it, and a category, used to measure and guard the tactical strength
+ *  of the AI.  A suite file has one problem per line, in the form
+ *
+ *    PACKED CATEGORY R:C [R:C ...]
+ *
+ *  where PACKED is the position in packed form (see Engine.pack), the
+ *  side to move following from it, and each R:C is the row and column
+ *  of a solving move.  Blank lines and lines starting with # are
+ *  ignored.  The AI solves a problem if, searching the position for a
+ *  given time, it chooses one of the solving moves.  The runner reports
+ *  the problems solved, overall and by category, and the speed of the
+ *  search, at each of several times per problem.
+ *
+ *  Suites can be generated from random positions whose solving moves
+ *  are certified by the Solver: the solving moves are exactly those
+ *  that it proves to win.  The categories are then "instant" (the side
+ *  to move has a win that Board.instantWin finds) and "win" (its wins
+ *  all need search).
+ *  @author Randy Shi
+ */
+public class Suite {
+
+    /** Default times per problem, in milliseconds. */
+    static final long[] DEFAULT_TIMES = { 10, 100, 1000 };
+
+    /** A suite of PROBLEMS. */
+    Suite(List<Problem> problems) {
+        _problems = problems;
+    }
+
+    /** A tactical problem. */
+    static class Problem {
+
+        /** The problem of finding one of MOVES in the position whose
+         *  packed form is POSITION, of category CATEGORY. */
+        Problem(String position, String category, int[] moves) {
+            _position = position;
+            _category = category;
+            _moves = moves.clone();
+            Arrays.sort(_moves);
+        }
+
+        /** Returns my position in packed form. */
+        String position() {
+            return _position;
+        }
+
+        /** Returns my category. */
+        String category() {
+            return _category;
+        }
+
+        /** Returns true iff MOVE solves me. */
+        boolean solvedBy(int move) {
+            return Arrays.binarySearch(_moves, move) >= 0;
+        }
+
+        /** Returns me in the form of a line of a suite file, for whose
+         *  position B is a board. */
+        String toString(Board b) {
+            StringBuilder line = new StringBuilder();
+            line.append(_position).append(' ').append(_category);
+            for (int move : _moves) {
+                line.append(' ').append(b.row(move)).append(':')
+                    .append(b.col(move));
+            }
+            return line.toString();
+        }
+
+        /** Packed position. */
+        private final String _position;
+        /** Category. */
+        private final String _category;
+        /** Solving moves, as square numbers, in increasing order. */
+        private final int[] _moves;
+    }
+
+    /** Returns the suite read from INPUT.  Throws a GameException if a
+     *  problem is malformed or its solving moves are not legal. */
+    static Suite read(Reader input) throws IOException {
+        BufferedReader in = new BufferedReader(input);
+        List<Problem> problems = new ArrayList<>();
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        int lineNumber = 0;
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            lineNumber += 1;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            if (words.length < 3) {
+                throw error("line %d: expected PACKED CATEGORY R:C...",
+                            lineNumber);
+            }
+            Engine.unpack(words[0], board);
+            int[] moves = new int[words.length - 2];
+            for (int k = 0; k < moves.length; k += 1) {
+                String[] rc = words[k + 2].split(":");
+                int r, c;
+                try {
+                    r = Integer.parseInt(rc[0]);
+                    c = rc.length == 2 ? Integer.parseInt(rc[1]) : 0;
+                } catch (NumberFormatException excp) {
+                    r = c = 0;
+                }
+                if (!board.exists(r, c)
+                    || !board.isLegal(board.whoseMove(), r, c)) {
+                    throw error("line %d: bad move %s", lineNumber,
+                                words[k + 2]);
+                }
+                moves[k] = board.sqNum(r, c);
+            }
+            problems.add(new Problem(words[0], words[1], moves));
+        }
+        return new Suite(problems);
+    }
+
+    /** Returns my problems. */
+    List<Problem> problems() {
+        return _problems;
+    }
+
+    /** Search each of my problems for MILLIS milliseconds on THREADS
+     *  threads, and report the problems solved, by category, and the
+     *  search speed to OUT.  Returns the number solved. */
+    int run(long millis, int threads, PrintWriter out) {
+        List<String> positions = new ArrayList<>();
+        for (Problem problem : _problems) {
+            positions.add(problem.position());
+        }
+        Analyzer.Analysis[] results =
+            new Analyzer(Engine.MAX_DEPTH, millis, threads)
+            .analyze(positions);
+        Map<String, int[]> categories = new TreeMap<>();
+        int solved = 0;
+        long nodes = 0, nanos = 0;
+        for (int i = 0; i < results.length; i += 1) {
+            Problem problem = _problems.get(i);
+            int[] counts = categories.computeIfAbsent(problem.category(),
+                                                      k -> new int[2]);
+            counts[1] += 1;
+            if (problem.solvedBy(results[i].move())) {
+                counts[0] += 1;
+                solved += 1;
+            }
+            nodes += results[i].nodes();
+            nanos += results[i].nanos();
+        }
+        out.printf("%d ms: %d of %d solved (%.1f%%), %.0f nodes/s%n",
+                   millis, solved, results.length,
+                   percent(solved, results.length),
+                   nanos == 0 ? 0.0 : nodes * 1e9 / nanos);
+        for (Map.Entry<String, int[]> entry : categories.entrySet()) {
+            int[] counts = entry.getValue();
+            out.printf("    %-12s %d of %d%n", entry.getKey(), counts[0],
+                       counts[1]);
+        }
+        out.flush();
+        return solved;
+    }
+
+    /** Returns NUM as a percentage of DEN. */
+    static double percent(int num, int den) {
+        return den == 0 ? 100 : 100.0 * num / den;
+    }
+
+    /** Returns a suite of COUNT problems from random positions on N x N
+     *  boards chosen using SEED, each certified by a solver visiting at
+     *  most BUDGET positions per move. */
+    static Suite generate(int count, int n, long seed, long budget) {
+        Random random = new Random(seed);
+        Solver solver = new Solver(Defaults.SOLVER_LOG_SIZE);
+        List<Problem> problems = new ArrayList<>();
+        int area = n * n;
+        while (problems.size() < count) {
+            MutableBoard b = new MutableBoard(n);
+            int length = area + random.nextInt(GAME_LENGTH * area);
+            for (int k = 0; k < length && b.getWinner() == null; k += 1) {
+                int m;
+                do {
+                    m = random.nextInt(area);
+                } while (!b.isLegal(b.whoseMove(), m));
+                b.addSpot(b.whoseMove(), m);
+            }
+            if (b.getWinner() == null) {
+                Problem problem = certify(b, solver, budget);
+                if (problem != null) {
+                    problems.add(problem);
+                }
+            }
+        }
+        return new Suite(problems);
+    }
+
+    /** Returns a problem made from B, whose solving moves are found by
+     *  SOLVER, visiting at most BUDGET positions per move, or null if
+     *  SOLVER cannot decide every move, or if B has no winning move or
+     *  too many for a good problem. */
+    private static Problem certify(Board b, Solver solver, long budget) {
+        Side player = b.whoseMove();
+        int area = b.size() * b.size();
+        int[] wins = new int[area];
+        int numWins = 0, numMoves = 0;
+        for (int m = 0; m < area; m += 1) {
+            if (!b.isLegal(player, m)) {
+                continue;
+            }
+            numMoves += 1;
+            Board child = new MutableBoard(b);
+            child.addSpot(player, m);
+            int status = child.getWinner() == player ? Solver.DISPROVEN
+                : solver.solve(child, budget);
+            if (status == Solver.UNKNOWN) {
+                return null;
+            } else if (status == Solver.DISPROVEN) {
+                wins[numWins] = m;
+                numWins += 1;
+            }
+        }
+        String packed = Engine.pack(b);
+        if (numWins > 0 && numWins * MAX_SOLUTIONS <= numMoves) {
+            return new Problem(packed, b.instantWin(player) >= 0 ? "instant"
+                               : "win", Arrays.copyOf(wins, numWins));
+        }
+        return null;
+    }
+
+    /** Run a suite.  ARGS0 contains --suite=FILE, and may contain
+     *  --times=T,... (times per problem in milliseconds), --threads=N,
+     *  and --min=P (the least percentage of problems that must be solved
+     *  at each time).  Exits with status 1 if fewer are solved.  With
+     *  --generate=N, instead writes a suite of N problems to FILE, on
+     *  boards of size --size=N with seed --seed=N. */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--suite=(.+) --times=([\\d,]+){0,1} "
+                            + "--threads=(\\d+){0,1} --min=([\\d.]+){0,1} "
+                            + "--generate=(\\d+){0,1} --size=(\\d+){0,1} "
+                            + "--seed=(-?\\d+){0,1}", args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Suite --suite=FILE "
+                               + "[--times=T,...] [--threads=N] [--min=P]"
+                               + "\n       java jump61.Suite --suite=FILE "
+                               + "--generate=N [--size=N] [--seed=N]");
+            System.exit(1);
+        }
+        String fileName = args.getFirst("--suite");
+        if (args.contains("--generate")) {
+            int n = Tuner.intArg(args, "--size", DEFAULT_SIZE);
+            long seed = args.contains("--seed")
+                ? Long.parseLong(args.getFirst("--seed")) : 0;
+            Suite suite = generate(Tuner.intArg(args, "--generate", 0), n,
+                                   seed, CERTIFY_NODES);
+            try (PrintWriter out = new PrintWriter(new FileWriter(fileName))) {
+                out.printf("# %d problems on %dx%d boards, seed %d%n",
+                           suite.problems().size(), n, n, seed);
+                MutableBoard board = new MutableBoard(n);
+                for (Problem problem : suite.problems()) {
+                    Engine.unpack(problem.position(), board);
+                    out.println(problem.toString(board));
+                }
+            }
+            return;
+        }
+        Suite suite;
+        try (Reader in = new FileReader(fileName)) {
+            suite = read(in);
+        } catch (GameException excp) {
+            System.err.printf("%s: %s%n", fileName, excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        long[] times = DEFAULT_TIMES;
+        if (args.contains("--times")) {
+            times = Arrays.stream(args.getFirst("--times").split(","))
+                .mapToLong(Long::parseLong).toArray();
+        }
+        int threads = Tuner.intArg(args, "--threads",
+                                   Runtime.getRuntime()
+                                   .availableProcessors());
+        double min = args.contains("--min")
+            ? Double.parseDouble(args.getFirst("--min")) : 0;
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out));
+        boolean passed = true;
+        for (long millis : times) {
+            int solved = suite.run(millis, threads, out);
+            passed &= percent(solved, suite.problems().size()) >= min;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /** Default board size of generated suites. */
+    private static final int DEFAULT_SIZE = 5;
+    /** Random positions for generated suites are reached by at least as
+     *  many moves as there are squares, and fewer than this many more
+     *  per square. */
+    private static final int GAME_LENGTH = 2;
+    /** A generated problem has at most one solving move for each this
+     *  many legal moves. */
+    private static final int MAX_SOLUTIONS = 3;
+    /** Most positions the solver visits per move when generating. */
+    private static final long CERTIFY_NODES = 20000;
+
+    /** The problems. */
+    private final List<Problem> _problems;
+
+}
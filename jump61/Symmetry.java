@@ -0,0 +1,139 @@
+package jump61;
+
+import java.util.Arrays;
+
+/** The eight symmetries of a square board (the rotations and reflections
+ *  of the dihedral group D4), as maps on square numbers.  Positions that
+ *  are symmetric images of each other are equivalent in play, so caches
+ *  and datasets may identify them by their canonical key: the least of
+ *  the keys of their eight images.
+ *  @author Randy Shi
+ */
+class Symmetry {
+
+    /** The number of symmetries.  Symmetry 0 is the identity. */
+    static final int COUNT = 8;
+
+    /** Returns the number of the square to which symmetry T (0 <= T <
+     *  COUNT) moves square #N of a board with SIZE squares on a side. */
+    static int apply(int t, int n, int size) {
+        int r = n / size, c = n % size, last = size - 1;
+        switch (t) {
+        case 0:
+            return n;
+        case 1:
+            return c * size + last - r;
+        case 2:
+            return (last - r) * size + last - c;
+        case 3:
+            return (last - c) * size + r;
+        case 4:
+            return r * size + last - c;
+        case 5:
+            return (last - r) * size + c;
+        case 6:
+            return c * size + r;
+        default:
+            return (last - c) * size + last - r;
+        }
+    }
+
+    /** Returns the table of symmetries for boards with SIZE squares on a
+     *  side: element [t][n] is apply(t, n, SIZE).  The tables are shared
+     *  and must not be modified. */
+    static int[][] table(int size) {
+        return TABLES[size];
+    }
+
+    /** Returns the symmetry that undoes symmetry T. */
+    static int inverse(int t) {
+        switch (t) {
+        case 1:
+            return 3;
+        case 3:
+            return 1;
+        default:
+            return t;
+        }
+    }
+
+    /** Returns true iff symmetry T maps B onto itself. */
+    static boolean isSymmetry(Board b, int t) {
+        int[] image = TABLES[b.size()][t];
+        for (int n = 0; n < image.length; n += 1) {
+            if (!b.get(n).equals(b.get(image[n]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Store in KEYS[t] the key (as for Board.key) of the image of B
+     *  under each symmetry t, computed in one pass over B. */
+    static void keys(Board b, long[] keys) {
+        int[][] table = TABLES[b.size()];
+        Arrays.fill(keys, 0, COUNT, 0);
+        for (int n = 0; n < table[0].length; n += 1) {
+            Square sq = b.get(n);
+            if (sq.getSide() != Side.WHITE) {
+                for (int t = 0; t < COUNT; t += 1) {
+                    keys[t] ^= Board.squareKey(table[t][n], sq);
+                }
+            }
+        }
+    }
+
+    /** Returns the symmetry whose image of B has the least key, the first
+     *  such if there are ties. */
+    static int canonicalTransform(Board b) {
+        long[] keys = new long[COUNT];
+        keys(b, keys);
+        int best = 0;
+        for (int t = 1; t < COUNT; t += 1) {
+            if (keys[t] < keys[best]) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the canonical key of B: the least key of its images under
+     *  the symmetries.  Boards that are symmetric images of each other
+     *  have the same canonical key. */
+    static long canonicalKey(Board b) {
+        long[] keys = new long[COUNT];
+        keys(b, keys);
+        long best = keys[0];
+        for (int t = 1; t < COUNT; t += 1) {
+            best = Math.min(best, keys[t]);
+        }
+        return best;
+    }
+
+    /** Returns a new board that is the image of B under symmetry T. */
+    static MutableBoard transform(Board b, int t) {
+        int size = b.size();
+        MutableBoard result = new MutableBoard(size);
+        for (int n = 0; n < size * size; n += 1) {
+            Square sq = b.get(n);
+            result.set(apply(t, n, size), sq.getSpots(), sq.getSide());
+        }
+        return result;
+    }
+
+    /** Symmetry tables, as returned by table, indexed by board size. */
+    private static final int[][][] TABLES =
+        new int[Defaults.MAX_BOARD_SIZE + 1][COUNT][];
+
+    static {
+        for (int size = 1; size < TABLES.length; size += 1) {
+            for (int t = 0; t < COUNT; t += 1) {
+                int[] image = TABLES[size][t] = new int[size * size];
+                for (int n = 0; n < image.length; n += 1) {
+                    image[n] = apply(t, n, size);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package jump61;
+
+/** A game clock with an increment, and the division of each side's time
+ *  among its moves.  Each side starts with the same amount of time,
+ *  which runs only during its own turns, and gains a fixed increment
+ *  after each of its moves.  A side whose time runs out loses.
+ *
+ *  For a side about to move, the clock gives two limits on the time to
+ *  spend.  The soft limit is the side's share of its remaining time for
+ *  the moves it is likely still to make, plus most of the increment; a
+ *  search should not begin a deeper iteration once past it, though it
+ *  may stretch it while its choice of move is unstable (see extend).
+ *  The hard limit, at which a search must stop, is a few times the soft
+ *  limit, but always leaves a reserve of the remaining time, so that a
+ *  side never loses on time by searching.
+ *  @author Randy Shi
+ */
+class TimeManager {
+
+    /** A clock that gives each side BASEMILLIS milliseconds, and
+     *  INCREMENTMILLIS more after each of its moves. */
+    TimeManager(long baseMillis, long incrementMillis) {
+        _base = baseMillis;
+        _increment = incrementMillis;
+        reset();
+    }
+
+    /** Give each side its full starting time again, and stop the
+     *  clock. */
+    void reset() {
+        for (int s = 0; s < _remaining.length; s += 1) {
+            _remaining[s] = _base;
+        }
+        _turnStart = -1;
+    }
+
+    /** Returns the starting time of each side, in milliseconds. */
+    long base() {
+        return _base;
+    }
+
+    /** Returns the increment, in milliseconds. */
+    long increment() {
+        return _increment;
+    }
+
+    /** Returns the time left to SIDE, in milliseconds, not counting the
+     *  current turn. */
+    long remaining(Side side) {
+        return _remaining[side.ordinal()];
+    }
+
+    /** Start the clock of SIDE, whose turn it now is. */
+    void start(Side side) {
+        _turnStart = System.nanoTime();
+        _running = side;
+    }
+
+    /** Stop the clock of SIDE at the end of its turn, charging it the
+     *  time since start, and give it the increment if MOVED, that is, if
+     *  it made a move.  Returns false iff SIDE has run out of time.  Does
+     *  nothing but return true if the clock of SIDE was not
+     *  started. */
+    boolean stop(Side side, boolean moved) {
+        if (_turnStart == -1 || side != _running) {
+            return true;
+        }
+        long used = (System.nanoTime() - _turnStart) / NANOS_PER_MILLI;
+        _turnStart = -1;
+        int s = side.ordinal();
+        _remaining[s] -= used;
+        if (_remaining[s] < 0) {
+            return false;
+        }
+        if (moved) {
+            _remaining[s] += _increment;
+        }
+        return true;
+    }
+
+    /** Returns the number of moves that the side to move on B is likely
+     *  still to make, estimated from the number of moves made so far
+     *  (numPieces() less the number of squares) and the usual length of
+     *  a game on a board of B's size. */
+    static int movesLeft(Board b) {
+        int area = b.size() * b.size();
+        int played = b.numPieces() - area;
+        return Math.max(MIN_MOVES_LEFT, (GAME_LENGTH * area - played) / 2);
+    }
+
+    /** Returns the soft limit, in milliseconds, for a move by SIDE on
+     *  B. */
+    long softLimit(Board b, Side side) {
+        long share = remaining(side) / movesLeft(b) + _increment * 3 / 4;
+        return Math.min(share, hardLimit(b, side));
+    }
+
+    /** Returns the hard limit, in milliseconds, for a move by SIDE on
+     *  B. */
+    long hardLimit(Board b, Side side) {
+        long remaining = remaining(side);
+        long share = remaining / movesLeft(b) + _increment * 3 / 4;
+        long available =
+            remaining - Math.max(MIN_RESERVE, remaining / RESERVE_FRACTION);
+        return Math.max(0, Math.min(HARD_FACTOR * share, available));
+    }
+
+    /** Returns the soft limit SOFT stretched for a search whose best move
+     *  has recently changed INSTABILITY times, by half for each change,
+     *  but never past the hard limit HARD. */
+    static long extend(long soft, long hard, int instability) {
+        return Math.min(hard, soft + soft * instability / 2);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Red %s, Blue %s", format(remaining(Side.RED)),
+                             format(remaining(Side.BLUE)));
+    }
+
+    /** Returns MILLIS milliseconds in the form M:SS.S. */
+    private static String format(long millis) {
+        return String.format("%d:%04.1f", millis / MILLIS_PER_MINUTE,
+                             millis % MILLIS_PER_MINUTE / 1000.0);
+    }
+
+    /** Usual number of moves in a game, per square of the board. */
+    private static final int GAME_LENGTH = 2;
+    /** Least number of moves a side is assumed still to make. */
+    private static final int MIN_MOVES_LEFT = 8;
+    /** The hard limit is at most this many times the soft limit before
+     *  it is stretched. */
+    private static final int HARD_FACTOR = 4;
+    /** Least time, in milliseconds, kept in reserve. */
+    private static final long MIN_RESERVE = 50;
+    /** At least the remaining time divided by this is kept in
+     *  reserve. */
+    private static final long RESERVE_FRACTION = 20;
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+    /** Milliseconds per minute. */
+    private static final long MILLIS_PER_MINUTE = 60000;
+
+    /** Starting time of each side, in milliseconds. */
+    private final long _base;
+    /** Time added after each move, in milliseconds. */
+    private final long _increment;
+    /** Time left to each side, indexed by ordinal, in milliseconds. */
+    private final long[] _remaining = new long[Side.values().length];
+    /** Value of System.nanoTime() at the start of the current turn, or
+     *  -1 if the clock is stopped. */
+    private long _turnStart;
+    /** The side whose clock was last started. */
+    private Side _running;
+
+}
@@ -0,0 +1,99 @@
+package jump61;
+
+/** A fixed-size table of search results, indexed by Board.canonicalKey(),
+ *  so that symmetric positions share an entry.  Each entry remembers the
+ *  best move found for a position, as a square of its canonical image,
+ *  together with the depth and value of the search that found it.
+ *  Entries are kept in
+ *  parallel arrays to avoid allocating an object per position.
+ *  @author Randy Shi
+ */
+class TranspositionTable {
+
+    /** Bound type of an entry whose value is exact. */
+    static final int EXACT = 0;
+    /** Bound type of an entry whose value is a lower bound. */
+    static final int LOWER = 1;
+    /** Bound type of an entry whose value is an upper bound. */
+    static final int UPPER = 2;
+
+    /** A new, empty table with 2**LOGSIZE entries. */
+    TranspositionTable(int logSize) {
+        int size = 1 << logSize;
+        _mask = size - 1;
+        _keys = new long[size];
+        _moves = new int[size];
+        _values = new int[size];
+        _depths = new byte[size];
+        _bounds = new byte[size];
+        clear();
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        for (int i = 0; i <= _mask; i += 1) {
+            _moves[i] = -1;
+            _keys[i] = 0;
+        }
+    }
+
+    /** Returns the index of the entry for KEY, or -1 if there is none. */
+    int find(long key) {
+        int i = (int) key & _mask;
+        if (_moves[i] >= 0 && _keys[i] == key) {
+            return i;
+        }
+        return -1;
+    }
+
+    /** Returns the best move recorded for KEY, or -1 if there is none. */
+    int move(long key) {
+        int i = find(key);
+        return i < 0 ? -1 : _moves[i];
+    }
+
+    /** Returns the search depth of entry #I. */
+    int depth(int i) {
+        return _depths[i];
+    }
+
+    /** Returns the value of entry #I. */
+    int value(int i) {
+        return _values[i];
+    }
+
+    /** Returns the bound type (EXACT, LOWER, or UPPER) of entry #I. */
+    int bound(int i) {
+        return _bounds[i];
+    }
+
+    /** Record that a search of depth DEPTH of the position with KEY found
+     *  best move MOVE with VALUE of bound type BOUND.  Replaces any
+     *  entry for another position, or a shallower one for the same
+     *  position. */
+    void store(long key, int move, int depth, int value, int bound) {
+        int i = (int) key & _mask;
+        if (_moves[i] >= 0 && _keys[i] == key && _depths[i] > depth) {
+            return;
+        }
+        _keys[i] = key;
+        _moves[i] = move;
+        _depths[i] = (byte) depth;
+        _values[i] = value;
+        _bounds[i] = (byte) bound;
+    }
+
+    /** Mask selecting an entry index from a key. */
+    private final int _mask;
+    /** Keys of the positions in each entry. */
+    private final long[] _keys;
+    /** Best moves of each entry, or -1 for empty entries. */
+    private final int[] _moves;
+    /** Values of each entry. */
+    private final int[] _values;
+    /** Search depths of each entry. */
+    private final byte[] _depths;
+    /** Bound types of each entry. */
+    private final byte[] _bounds;
+
+}
@@ -0,0 +1,222 @@
+package jump61;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ucb.util.CommandArgs;
+
+import static jump61.Side.*;
+
+/** Tunes the feature weights of a LinearEvaluator by simultaneous
+ *  perturbation stochastic approximation (SPSA).  Each iteration
+ *  perturbs all weights at once in a random direction, plays short
+ *  seeded self-play games in parallel between the two perturbed weight
+ *  sets, and moves the weights toward the one that scored better.  The
+ *  new weights then play a match against the best weights so far, and
+ *  replace them if they score better.  The best weights are saved as a
+ *  checkpoint after every iteration.
+ *  @author Randy Shi
+ */
+public class Tuner {
+
+    /** Scale of the step size. */
+    private static final double STEP = 8.0;
+    /** Scale of the perturbations. */
+    private static final double PERTURBATION = 2.0;
+    /** Exponent of the decay of the step size. */
+    private static final double STEP_DECAY = 0.602;
+    /** Exponent of the decay of the perturbations. */
+    private static final double PERTURBATION_DECAY = 0.101;
+    /** Default board size for tuning games. */
+    private static final int DEFAULT_SIZE = 4;
+    /** Default number of pairs of games per iteration. */
+    private static final int DEFAULT_PAIRS = 16;
+    /** Default number of iterations. */
+    private static final int DEFAULT_ITERATIONS = 100;
+    /** Default checkpoint file. */
+    private static final String DEFAULT_OUT = "tuned.properties";
+
+    /** Tune weights with games on an N x N board, playing PAIRS pairs of
+     *  games per iteration on THREADS threads. */
+    Tuner(int n, int pairs, int threads) {
+        _size = n;
+        _pairs = pairs;
+        _threads = threads;
+    }
+
+    /** Returns the average score, between -1 and 1, of EVAL0 against
+     *  EVAL1 over my number of pairs of games.  In each pair, both games
+     *  use the same seed, and each evaluator plays each color once.
+     *  Seeds are chosen using SEED. */
+    double match(Evaluator eval0, Evaluator eval1, long seed) {
+        Random seeds = new Random(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        List<Future<Side>> asRed = new ArrayList<Future<Side>>(),
+            asBlue = new ArrayList<Future<Side>>();
+        try {
+            for (int k = 0; k < _pairs; k += 1) {
+                long gameSeed = seeds.nextLong();
+                asRed.add(pool.submit(() ->
+                          SelfPlay.play(_size, eval0, eval1, gameSeed)));
+                asBlue.add(pool.submit(() ->
+                           SelfPlay.play(_size, eval1, eval0, gameSeed)));
+            }
+            int score = 0;
+            for (int k = 0; k < _pairs; k += 1) {
+                score += asRed.get(k).get() == RED ? 1 : -1;
+                score += asBlue.get(k).get() == BLUE ? 1 : -1;
+            }
+            return score / (2.0 * _pairs);
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns the best weights found by tuning the feature weights of
+     *  START for ITERATIONS iterations, using SEED to choose
+     *  perturbations and game seeds.  After each iteration, saves the
+     *  best weights so far to the file named CHECKPOINT, if it is not
+     *  null, and reports progress on standard output. */
+    LinearEvaluator tune(LinearEvaluator start, int iterations, long seed,
+                         String checkpoint) throws IOException {
+        Random random = new Random(seed);
+        int[] preferences = start.preferences();
+        int[] weights0 = start.weights();
+        double[] theta = new double[weights0.length];
+        for (int f = 0; f < theta.length; f += 1) {
+            theta[f] = weights0[f];
+        }
+        double stability = iterations / 10.0;
+        LinearEvaluator best = start;
+        for (int k = 0; k < iterations; k += 1) {
+            double a = STEP / Math.pow(k + 1 + stability, STEP_DECAY);
+            double c = PERTURBATION / Math.pow(k + 1, PERTURBATION_DECAY);
+            int[] delta = new int[theta.length];
+            double[] plus = new double[theta.length],
+                minus = new double[theta.length];
+            for (int f = 0; f < theta.length; f += 1) {
+                delta[f] = random.nextBoolean() ? 1 : -1;
+                plus[f] = theta[f] + c * delta[f];
+                minus[f] = theta[f] - c * delta[f];
+            }
+            double score = match(evaluator(plus, preferences),
+                                 evaluator(minus, preferences),
+                                 random.nextLong());
+            step(theta, delta, score, a, c);
+            LinearEvaluator current = evaluator(theta, preferences);
+            double versusBest = match(current, best, random.nextLong());
+            if (versusBest > 0) {
+                best = current;
+            }
+            if (checkpoint != null) {
+                save(best, checkpoint);
+            }
+            System.out.printf("iteration %d: score %+.3f weights %s, "
+                              + "%+.3f against best %s%n",
+                              k + 1, score,
+                              Arrays.toString(current.weights()),
+                              versusBest, Arrays.toString(best.weights()));
+        }
+        return best;
+    }
+
+    /** Move the weights THETA by one SPSA step, after perturbing them by
+     *  C * DELTA[f] for each feature f, where each DELTA[f] is 1 or -1,
+     *  and finding that the weights plus the perturbation scored SCORE
+     *  against the weights minus it.  A is the step size. */
+    static void step(double[] theta, int[] delta, double score, double a,
+                     double c) {
+        for (int f = 0; f < theta.length; f += 1) {
+            theta[f] += a * score / (2 * c * delta[f]);
+        }
+    }
+
+    /** Returns an evaluator whose weights are THETA, rounded, and whose
+     *  preferences are PREFERENCES. */
+    private static LinearEvaluator evaluator(double[] theta,
+                                             int[] preferences) {
+        int[] weights = new int[theta.length];
+        for (int f = 0; f < theta.length; f += 1) {
+            weights[f] = (int) Math.round(theta[f]);
+        }
+        return new LinearEvaluator(weights, preferences);
+    }
+
+    /** Save the weights of EVAL to the file named FILENAME, replacing it
+     *  only once the new contents are complete. */
+    static void save(LinearEvaluator eval, String fileName)
+        throws IOException {
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "weights",
+                                         ".tmp");
+        try (Writer out = new FileWriter(temp.toFile())) {
+            eval.write(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Tune evaluation weights.  ARGS0 may contain --size=N (board size),
+     *  --pairs=N (pairs of games per iteration), --iterations=N,
+     *  --threads=N, --seed=N, --start=FILE (initial weights; default the
+     *  standard ones), and --out=FILE (checkpoint file). */
+    public static void main(String[] args0) throws IOException {
+        CommandArgs args =
+            new CommandArgs("--size=(\\d+){0,1} --pairs=(\\d+){0,1} "
+                            + "--iterations=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --seed=(-?\\d+){0,1} "
+                            + "--start=(.+){0,1} --out=(.+){0,1}", args0);
+        if (!args.ok()) {
+            System.err.println("Usage: java jump61.Tuner [--size=N] "
+                               + "[--pairs=N] [--iterations=N] "
+                               + "[--threads=N] [--seed=N] [--start=FILE] "
+                               + "[--out=FILE]");
+            System.exit(1);
+        }
+        Tuner tuner =
+            new Tuner(intArg(args, "--size", DEFAULT_SIZE),
+                      intArg(args, "--pairs", DEFAULT_PAIRS),
+                      intArg(args, "--threads",
+                             Runtime.getRuntime().availableProcessors()));
+        LinearEvaluator start =
+            args.contains("--start")
+            ? LinearEvaluator.read(args.getFirst("--start"))
+            : LinearEvaluator.standard();
+        String out = args.contains("--out") ? args.getFirst("--out")
+            : DEFAULT_OUT;
+        long seed = args.contains("--seed")
+            ? Long.parseLong(args.getFirst("--seed")) : 0;
+        tuner.tune(start, intArg(args, "--iterations", DEFAULT_ITERATIONS),
+                   seed, out);
+    }
+
+    /** Returns the integer value of option KEY in ARGS, or DEFLT if it is
+     *  absent. */
+    static int intArg(CommandArgs args, String key, int deflt) {
+        return args.contains(key) ? Integer.parseInt(args.getFirst(key))
+            : deflt;
+    }
+
+    /** Size of the boards in tuning games. */
+    private final int _size;
+    /** Number of pairs of games per match. */
+    private final int _pairs;
+    /** Number of threads on which to play games. */
+    private final int _threads;
+
+}
@@ -10,7 +10,9 @@ public class UnitTest {
 
     /** Run the JUnit tests in the tex61 package. */
     public static void main(String[] ignored) {
-        textui.runClasses(jump61.BoardTest.class);
+        textui.runClasses(jump61.BoardTest.class, jump61.AITest.class,
+                          jump61.RecordTest.class, jump61.ServerTest.class,
+                          jump61.FarmTest.class);
     }
 
 }